@@ -11,13 +11,19 @@ import com.muhammaddaffa.mdlib.utils.updatechecker.UpdateChecker;
 import com.muhammaddaffa.nextgens.api.GeneratorAPI;
 import com.muhammaddaffa.nextgens.commands.*;
 import com.muhammaddaffa.nextgens.generators.runnables.CorruptionTask;
+import com.muhammaddaffa.nextgens.generators.runnables.DropDispatchTask;
 import com.muhammaddaffa.nextgens.generators.runnables.GeneratorTask;
+import com.muhammaddaffa.nextgens.generators.runnables.BlockClearTask;
+import com.muhammaddaffa.nextgens.generators.runnables.GeneratorSaveTask;
+import com.muhammaddaffa.nextgens.generators.runnables.GeneratorSnapshotTask;
 import com.muhammaddaffa.nextgens.generators.runnables.NotifyTask;
+import com.muhammaddaffa.nextgens.generators.scheduler.WorldSnapshot;
 import com.muhammaddaffa.nextgens.hooks.papi.GensExpansion;
 import com.muhammaddaffa.nextgens.listeners.*;
 import com.muhammaddaffa.nextgens.managers.*;
 import com.muhammaddaffa.nextgens.sell.multipliers.SellMultiplierRegistry;
 import com.muhammaddaffa.nextgens.users.UserRepository;
+import com.muhammaddaffa.nextgens.users.UserSaveQueue;
 import com.muhammaddaffa.nextgens.utils.Settings;
 import dev.norska.dsw.DeluxeSellwands;
 import org.bstats.bukkit.Metrics;
@@ -60,11 +66,12 @@ public final class NextGens extends JavaPlugin {
     private final DatabaseManager dbm = new DatabaseManager();
     private final EventManager eventManager = new EventManager();
     private final WorthManager worthManager = new WorthManager();
-    private final GeneratorManager generatorManager = new GeneratorManager(dbm);
+    private final GeneratorManager generatorManager = new GeneratorManager(dbm, eventManager);
     private final UserManager userManager = new UserManager();
     private final UserRepository userRepository = new UserRepository(dbm, userManager);
+    private final UserSaveQueue userSaveQueue = new UserSaveQueue(userRepository);
     private final SellManager sellManager = new SellManager(userManager, eventManager);
-    private final RefundManager refundManager = new RefundManager(generatorManager);
+    private final RefundManager refundManager = new RefundManager(generatorManager, dbm);
     private final SellwandManager sellwandManager = new SellwandManager();
     private final AutosellManager autosellManager = new AutosellManager(userManager);
     private final SellMultiplierRegistry sellMultiplierRegistry = new SellMultiplierRegistry();
@@ -111,6 +118,9 @@ public final class NextGens extends JavaPlugin {
         this.dbm.connect();
         this.dbm.createGeneratorTable();
         this.dbm.createUserTable();
+        this.dbm.createRefundTable();
+        // the generator ids have to be interned before any generator is loaded
+        this.generatorManager.getRegistry().load();
 
         // register commands & listeners
         commands();
@@ -135,10 +145,10 @@ public final class NextGens extends JavaPlugin {
         Executor.asyncLater(3L, () -> {
             // load active generators
             this.generatorManager.loadActiveGenerator();
-            // load users
-            this.userRepository.loadUsers();
+            // load the users of the players that are already online, the others are loaded on join
+            this.userRepository.loadOnlineUsers();
 
-            // load the refund
+            // move the refunds of older versions into the database
             this.refundManager.load();
 
             // load events
@@ -161,15 +171,26 @@ public final class NextGens extends JavaPlugin {
         MDLib.shutdown();
         // remove all holograms
         GeneratorTask.flush();
+        // clear the blocks of the removed generators that are still queued
+        BlockClearTask.flush();
         // save all other things
         save();
+        // write every pending generator change
+        this.generatorManager.flushActiveGenerators(0);
+        this.generatorManager.writeSnapshot();
+        this.generatorManager.closeJournal();
+        // write every pending user change
+        int users = this.userSaveQueue.flush();
+        if (users > 0) {
+            Logger.info("Successfully saved " + users + " users data!");
+        }
         // close the database
         this.dbm.close();
     }
 
     private void save() {
         // save small things first
-        this.refundManager.saveAll();
+        this.refundManager.flush();
         this.eventManager.save();
     }
 
@@ -184,14 +205,33 @@ public final class NextGens extends JavaPlugin {
     }
 
     private void tasks() {
+        // the generator tasks start once the generators they work on are loaded
+        this.generatorManager.getReadyFuture().thenRun(() -> Executor.sync(this::generatorTasks));
+        // user save task
+        this.userSaveQueue.startTask();
+        // evict the offline users that aren't used anymore
+        this.userManager.startTask(this.userSaveQueue);
+        // autosell task
+        this.autosellManager.startTask();
+    }
+
+    private void generatorTasks() {
         // start generator task
-        GeneratorTask.start(this.generatorManager, this.eventManager, this.userManager);
+        // captured once, the events keep it up to date afterward
+        WorldSnapshot.capture(this.generatorManager.getChunkIndex());
+        GeneratorTask.start(this.generatorManager);
+        // drop dispatch task
+        DropDispatchTask.start(this.generatorManager, this.userManager);
+        // block clear task
+        BlockClearTask.start(this.generatorManager);
         // corruption task
         CorruptionTask.start(this.generatorManager);
         // notify task
         NotifyTask.start(this.generatorManager);
-        // autosell task
-        this.autosellManager.startTask();
+        // generator save task
+        GeneratorSaveTask.start(this.generatorManager);
+        // generator snapshot task
+        GeneratorSnapshotTask.start(this.generatorManager);
     }
 
     private void hooks() {
@@ -266,6 +306,7 @@ public final class NextGens extends JavaPlugin {
     private void listeners() {
         PluginManager pm = Bukkit.getPluginManager();
         // register events
+        pm.registerEvents(new GeneratorLoadingListener(this.generatorManager), this);
         pm.registerEvents(new GeneratorBreakListener(this.generatorManager, this.userManager), this);
         pm.registerEvents(new GeneratorPlaceListener(this.generatorManager, this.userManager), this);
         pm.registerEvents(new GeneratorPreventionListener(this.generatorManager), this);
@@ -274,6 +315,10 @@ public final class NextGens extends JavaPlugin {
         pm.registerEvents(new SellwandListener(this.sellwandManager), this);
         pm.registerEvents(new RefundListener(this.refundManager), this);
         pm.registerEvents(new GeneratorWorldDropMultiplier(), this);
+        pm.registerEvents(new ChunkGeneratorListener(this.generatorManager), this);
+        pm.registerEvents(new GeneratorPresenceListener(this.generatorManager), this);
+        pm.registerEvents(new UserLoadListener(this.userRepository, this.userManager), this);
+        pm.registerEvents(new UserSaveListener(this.userSaveQueue), this);
     }
 
     private void commands() {
@@ -368,6 +413,10 @@ public final class NextGens extends JavaPlugin {
         return userRepository;
     }
 
+    public UserSaveQueue getUserSaveQueue() {
+        return userSaveQueue;
+    }
+
     public SellManager getSellManager() {
         return sellManager;
     }
@@ -4,6 +4,7 @@ import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.objects.Event;
 import com.muhammaddaffa.nextgens.managers.EventManager;
 import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
 import com.muhammaddaffa.nextgens.objects.Generator;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
 import com.muhammaddaffa.nextgens.managers.RefundManager;
@@ -26,7 +27,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 public class GeneratorAPI {
 
@@ -68,15 +69,18 @@ public class GeneratorAPI {
 
     @NotNull
     public List<ActiveGenerator> getActiveGenerator(@NotNull UUID uuid) {
-        return this.getActiveGenerator().stream()
-                .filter(active -> active.getOwner().equals(uuid))
-                .collect(Collectors.toList());
+        return this.generatorManager.getActiveGenerator(uuid);
+    }
+
+    @NotNull
+    public Collection<ActiveGenerator> getOwnedGenerators(@NotNull UUID uuid) {
+        return this.generatorManager.getOwnedGenerators(uuid);
     }
 
     @Nullable
     public ActiveGenerator getActiveGenerator(@Nullable Block block) {
         if (block == null) return null;
-        return this.getActiveGenerator(block.getLocation());
+        return this.generatorManager.getActiveGenerator(block);
     }
 
     @Nullable
@@ -84,14 +88,27 @@ public class GeneratorAPI {
         return this.generatorManager.getActiveGenerator(location);
     }
 
+    @Nullable
+    public ActiveGenerator getActiveGenerator(@NotNull BlockKey key) {
+        return this.generatorManager.getActiveGenerator(key);
+    }
+
     public void unregisterGenerator(@NotNull Block block) {
-        this.unregisterGenerator(block.getLocation());
+        this.generatorManager.unregisterGenerator(block);
     }
 
     public void unregisterGenerator(@NotNull Location location) {
         this.generatorManager.unregisterGenerator(location);
     }
 
+    public void unregisterGenerator(@NotNull BlockKey key) {
+        this.generatorManager.unregisterGenerator(key);
+    }
+
+    public List<ActiveGenerator> unregisterGenerators(@NotNull Collection<ActiveGenerator> generators, boolean clearBlocks) {
+        return this.generatorManager.unregisterGenerators(generators, clearBlocks);
+    }
+
     public void giveGenerator(@NotNull Player player, @NotNull String id) {
         this.giveGenerator(player.getUniqueId(), id);
     }
@@ -106,14 +123,27 @@ public class GeneratorAPI {
 
     @NotNull
     public User getUser(@NotNull Player player) {
-        return this.getUser(player.getUniqueId());
+        return this.userManager.getUser(player);
     }
 
-    @NotNull
+    /**
+     * Get the user if it's in memory, use {@link #getUserAsync(UUID)} for players that might be offline.
+     *
+     * @return the user, or null if it isn't in memory
+     */
+    @Nullable
     public User getUser(@NotNull UUID uuid) {
         return this.userManager.getUser(uuid);
     }
 
+    /**
+     * Get the user of any player, offline players are read from the database.
+     * Completes with null if the player has no data.
+     */
+    public CompletableFuture<User> getUserAsync(@NotNull UUID uuid) {
+        return NextGens.getInstance().getUserRepository().getUserAsync(uuid);
+    }
+
     public int getGeneratorLimit(@NotNull Player player) {
         return this.userManager.getMaxSlot(player);
     }
@@ -123,7 +153,8 @@ public class GeneratorAPI {
     }
 
     public int getGeneratorBonusPlace(@NotNull UUID uuid) {
-        return this.getUser(uuid).getBonus();
+        User user = this.getUser(uuid);
+        return user == null ? 0 : user.getBonus();
     }
 
     public int getGeneratorCurrentPlaced(@NotNull Player player) {
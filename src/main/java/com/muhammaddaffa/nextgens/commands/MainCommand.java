@@ -14,6 +14,7 @@ import com.muhammaddaffa.nextgens.objects.Generator;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
 import com.muhammaddaffa.nextgens.generators.runnables.CorruptionTask;
 import com.muhammaddaffa.nextgens.generators.runnables.GeneratorTask;
+import com.muhammaddaffa.nextgens.generators.scheduler.WorldSnapshot;
 import com.muhammaddaffa.nextgens.gui.ViewInventory;
 import com.muhammaddaffa.nextgens.managers.SellwandManager;
 import com.muhammaddaffa.nextgens.users.UserRepository;
@@ -94,7 +95,7 @@ public class MainCommand {
                     User user = this.userManager.getUser(player);
                     user.addMultiplier(amount);
                     // save the user data afterward
-                    Executor.async(() -> NextGens.getInstance().getUserRepository().saveUser(user));
+                    NextGens.getInstance().getUserSaveQueue().markDirty(user);
                     // send message
                     NextGens.DEFAULT_CONFIG.sendMessage(sender, "messages.multiplier-increase", new Placeholder()
                             .add("{player}", player.getName())
@@ -124,7 +125,7 @@ public class MainCommand {
                     User user = this.userManager.getUser(player);
                     user.removeMultiplier(amount);
                     // save the user data afterward
-                    Executor.async(() -> NextGens.getInstance().getUserRepository().saveUser(user));
+                    NextGens.getInstance().getUserSaveQueue().markDirty(user);
                     // send message
                     NextGens.DEFAULT_CONFIG.sendMessage(sender, "messages.multiplier-decrease", new Placeholder()
                             .add("{player}", player.getName())
@@ -154,7 +155,7 @@ public class MainCommand {
                     User user = this.userManager.getUser(player);
                     user.setMultiplier(amount);
                     // save the user data afterward
-                    Executor.async(() -> NextGens.getInstance().getUserRepository().saveUser(user));
+                    NextGens.getInstance().getUserSaveQueue().markDirty(user);
                     // send message
                     NextGens.DEFAULT_CONFIG.sendMessage(sender, "messages.set-multiplier", new Placeholder()
                             .add("{player}", player.getName())
@@ -224,7 +225,7 @@ public class MainCommand {
                     User user = this.userManager.getUser(target);
                     user.addBonus(amount);
                     // save the user data afterward
-                    Executor.async(() -> NextGens.getInstance().getUserRepository().saveUser(user));
+                    NextGens.getInstance().getUserSaveQueue().markDirty(user);
                     // send message to the command sender
                     NextGens.DEFAULT_CONFIG.sendMessage(sender, "messages.add-max", new Placeholder()
                             .add("{amount}", amount)
@@ -254,7 +255,7 @@ public class MainCommand {
                     User user = this.userManager.getUser(target);
                     user.removeBonus(amount);
                     // save the user data afterward
-                    Executor.async(() -> NextGens.getInstance().getUserRepository().saveUser(user));
+                    NextGens.getInstance().getUserSaveQueue().markDirty(user);
                     // send message to the command sender
                     NextGens.DEFAULT_CONFIG.sendMessage(sender, "messages.remove-max", new Placeholder()
                             .add("{amount}", amount)
@@ -281,7 +282,7 @@ public class MainCommand {
                     User user = this.userManager.getUser(target);
                     user.setBonus(0);
                     // save the user data afterward
-                    Executor.async(() -> NextGens.getInstance().getUserRepository().saveUser(user));
+                    NextGens.getInstance().getUserSaveQueue().markDirty(user);
                     // send message to the command sender
                     NextGens.DEFAULT_CONFIG.sendMessage(sender, "messages.reset-max", new Placeholder()
                             .add("{player}", target.getName()));
@@ -325,6 +326,8 @@ public class MainCommand {
                     // actually reload the config
                     Config.reload();
                     Settings.init();
+                    // the blacklisted worlds might have changed
+                    WorldSnapshot.refreshWorlds(null);
                     // remove all holograms
                     GeneratorTask.flush();
                     // load back the generator
@@ -452,19 +455,21 @@ public class MainCommand {
                         })))
                 .executesPlayer((player, args) -> {
                     String name = (String) args.getOrDefault("name", player.getName());
-                    User user = this.userManager.getUser(name);
-                    if (user == null) {
-                        NextGens.DEFAULT_CONFIG.sendMessage(player, "messages.invalid-user");
-                        return;
-                    }
-                    // if player is not the user
-                    if (!user.getUniqueId().equals(player.getUniqueId()) &&
-                            !player.hasPermission("nextgens.view.others")) {
-                        NextGens.DEFAULT_CONFIG.sendMessage(player, "messages.no-permission");
-                        return;
-                    }
-                    // open the inventory
-                    ViewInventory.openInventory(player, user, this.generatorManager, this.userManager);
+                    // offline users might have to be read from the database first
+                    NextGens.getInstance().getUserRepository().getUserAsync(name).whenComplete((user, ex) -> Executor.sync(() -> {
+                        if (user == null || !player.isOnline()) {
+                            NextGens.DEFAULT_CONFIG.sendMessage(player, "messages.invalid-user");
+                            return;
+                        }
+                        // if player is not the user
+                        if (!user.getUniqueId().equals(player.getUniqueId()) &&
+                                !player.hasPermission("nextgens.view.others")) {
+                            NextGens.DEFAULT_CONFIG.sendMessage(player, "messages.no-permission");
+                            return;
+                        }
+                        // open the inventory
+                        ViewInventory.openInventory(player, user, this.generatorManager, this.userManager);
+                    }));
                 });
     }
 
@@ -9,7 +9,6 @@ import com.muhammaddaffa.mdlib.xseries.XSound;
 import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
-import org.bukkit.Material;
 import org.bukkit.Sound;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
@@ -65,18 +64,14 @@ public class PickupCommand {
                     }
                     // get all generators player have
                     List<ActiveGenerator> generators = this.generatorManager.getActiveGenerator(actualTarget);
-                    int total = generators.size();
-                    // loop generators
-                    for (ActiveGenerator active : generators) {
-                        // check if broken pickup option is enabled
-                        if (!NextGens.DEFAULT_CONFIG.getConfig().getBoolean("broken-pickup") && active.isCorrupted()) {
-                            total--;
-                            continue;
-                        }
-                        // unregister the generator
-                        this.generatorManager.unregisterGenerator(active.getLocation());
-                        // set the block to air
-                        active.getLocation().getBlock().setType(Material.AIR);
+                    // check if broken pickup option is enabled
+                    if (!NextGens.DEFAULT_CONFIG.getConfig().getBoolean("broken-pickup")) {
+                        generators.removeIf(ActiveGenerator::isCorrupted);
+                    }
+                    // unregister the generators together, the blocks are set to air over the next ticks
+                    List<ActiveGenerator> removed = this.generatorManager.unregisterGenerators(generators, true);
+                    int total = removed.size();
+                    for (ActiveGenerator active : removed) {
                         // give the item to the player
                         Common.addInventoryItem(actualTarget, active.getGenerator().createItem(1));
                     }
@@ -0,0 +1,103 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+
+import java.util.*;
+
+/**
+ * Per-world spatial hash of the active generators, used to answer
+ * "is there any generator within r blocks" without visiting every generator.
+ * <p>
+ * The cells are vertical columns that are at least as wide as the queried distance,
+ * so a query only has to look at the 3x3 columns around the block.
+ */
+public class GeneratorGrid {
+
+    // world id -> packed cell -> generators
+    private final Map<Integer, Map<Long, Set<BlockKey>>> worlds = new HashMap<>();
+    private int cellSize = 1;
+
+    public synchronized void add(ActiveGenerator active) {
+        BlockKey key = active.getKey();
+        if (key == null) {
+            return;
+        }
+        this.worlds.computeIfAbsent(key.world(), id -> new HashMap<>())
+                .computeIfAbsent(this.cell(key.getX(), key.getZ()), cell -> new HashSet<>())
+                .add(key);
+    }
+
+    public synchronized void remove(ActiveGenerator active) {
+        BlockKey key = active.getKey();
+        if (key == null) {
+            return;
+        }
+        Map<Long, Set<BlockKey>> cells = this.worlds.get(key.world());
+        if (cells == null) {
+            return;
+        }
+        long cell = this.cell(key.getX(), key.getZ());
+        Set<BlockKey> keys = cells.get(cell);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            cells.remove(cell);
+        }
+    }
+
+    public synchronized void removeAll(Collection<ActiveGenerator> generators) {
+        generators.forEach(this::remove);
+    }
+
+    /**
+     * Check whether there is any generator strictly closer than the given distance.
+     *
+     * @param generators every active generator, used to rebuild the grid when the distance has changed
+     */
+    public synchronized boolean isNear(BlockKey key, double distance, Collection<ActiveGenerator> generators) {
+        if (distance <= 0) {
+            return false;
+        }
+        int wanted = Math.max(1, (int) Math.ceil(distance));
+        // the distance has been changed in the config
+        if (wanted != this.cellSize) {
+            this.rebuild(wanted, generators);
+        }
+        Map<Long, Set<BlockKey>> cells = this.worlds.get(key.world());
+        if (cells == null) {
+            return false;
+        }
+        int cellX = Math.floorDiv(key.getX(), this.cellSize);
+        int cellZ = Math.floorDiv(key.getZ(), this.cellSize);
+        double distanceSquared = distance * distance;
+        for (int x = cellX - 1; x <= cellX + 1; x++) {
+            for (int z = cellZ - 1; z <= cellZ + 1; z++) {
+                Set<BlockKey> keys = cells.get(BlockKey.pack(x, 0, z));
+                if (keys == null) {
+                    continue;
+                }
+                for (BlockKey other : keys) {
+                    long dx = other.getX() - key.getX();
+                    long dy = other.getY() - key.getY();
+                    long dz = other.getZ() - key.getZ();
+                    if (dx * dx + dy * dy + dz * dz < distanceSquared) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void rebuild(int cellSize, Collection<ActiveGenerator> generators) {
+        this.cellSize = cellSize;
+        this.worlds.clear();
+        for (ActiveGenerator active : generators) {
+            this.add(active);
+        }
+    }
+
+    private long cell(int x, int z) {
+        return BlockKey.pack(Math.floorDiv(x, this.cellSize), 0, Math.floorDiv(z, this.cellSize));
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.mdlib.utils.Logger;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of every generator change that hasn't been written to the database yet,
+ * so a crash between two database flushes doesn't lose them.
+ * <p>
+ * Every record is written as its length, a checksum and the record itself. The records are
+ * appended by a background thread and synced to the disk together, instead of once per change.
+ * The log is split into segments, the segments that only hold changes that have been written
+ * to the database are deleted.
+ */
+public class GeneratorJournal {
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // anything bigger is a broken length, a record is never close to this
+    private static final int MAX_RECORD_SIZE = 1 << 16;
+
+    private final File directory;
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+
+    private FileChannel channel;
+    private long segment = -1;
+    private long segmentSize;
+    private volatile ScheduledExecutorService syncer;
+
+    public GeneratorJournal(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read every record of the existing segments, oldest first. A record that was only
+     * partly written when the server crashed ends its segment.
+     *
+     * @return how many records have been read
+     */
+    public int replay(Consumer<Record> consumer) {
+        int records = 0;
+        for (long id : this.getSegments()) {
+            File file = this.getFile(id);
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    byte[] payload = this.readRecord(input);
+                    if (payload == null) {
+                        break;
+                    }
+                    consumer.accept(this.decode(payload));
+                    records++;
+                }
+            } catch (IOException ex) {
+                Logger.severe("Failed to read the generator journal " + file.getName() + "!");
+                ex.printStackTrace();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Start a new segment and the background sync, the existing segments are kept until they're compacted.
+     *
+     * @param syncInterval how many milliseconds the records are collected before they're synced together
+     */
+    public synchronized void open(long syncInterval) throws IOException {
+        if (!this.directory.exists() && !this.directory.mkdirs()) {
+            throw new IOException("Failed to create " + this.directory);
+        }
+        long[] segments = this.getSegments();
+        this.openSegment(segments.length == 0 ? 0 : segments[segments.length - 1] + 1);
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "NextGens Generator Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.syncer.scheduleWithFixedDelay(this::sync, syncInterval, Math.max(1, syncInterval), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isOpen() {
+        return this.syncer != null;
+    }
+
+    public void put(UUID owner, BlockKey key, int type, double timer, boolean corrupted, double idle) {
+        if (!this.isOpen()) {
+            return;
+        }
+        this.pending.add(this.encode(new Record(false, owner, key.getWorldName(), key.getX(), key.getY(), key.getZ(),
+                type, timer, corrupted, idle)));
+    }
+
+    public void delete(BlockKey key) {
+        if (!this.isOpen()) {
+            return;
+        }
+        this.pending.add(this.encode(new Record(true, null, key.getWorldName(), key.getX(), key.getY(), key.getZ(),
+                -1, 0, false, 0)));
+    }
+
+    /**
+     * Write and sync the pending records.
+     */
+    public synchronized void sync() {
+        if (this.channel == null || this.pending.isEmpty()) {
+            return;
+        }
+        try {
+            byte[] record;
+            while ((record = this.pending.poll()) != null) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    this.segmentSize += this.channel.write(buffer);
+                }
+            }
+            // one sync for every record that has been written since the last one
+            this.channel.force(false);
+        } catch (IOException ex) {
+            Logger.severe("Failed to write the generator journal!");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Continue in a new segment if the current one has records, everything that is recorded
+     * from now on ends up in the returned segment or a later one.
+     *
+     * @return the current segment
+     */
+    public synchronized long rotate() throws IOException {
+        if (this.channel == null) {
+            return this.segment;
+        }
+        this.sync();
+        if (this.segmentSize > 0) {
+            this.channel.close();
+            this.openSegment(this.segment + 1);
+        }
+        return this.segment;
+    }
+
+    /**
+     * Delete every segment before the given one, call it once their changes are in the database.
+     */
+    public synchronized void compact(long before) {
+        for (long id : this.getSegments()) {
+            if (id < before && id != this.segment && !this.getFile(id).delete()) {
+                Logger.warning("Failed to delete the generator journal " + this.getFile(id).getName() + "!");
+            }
+        }
+    }
+
+    public synchronized void close() {
+        if (this.syncer != null) {
+            this.syncer.shutdown();
+            this.syncer = null;
+        }
+        this.sync();
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            this.channel = null;
+        }
+    }
+
+    private void openSegment(long id) throws IOException {
+        this.channel = FileChannel.open(this.getFile(id).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.segment = id;
+        this.segmentSize = this.channel.size();
+    }
+
+    private long[] getSegments() {
+        File[] files = this.directory.listFiles((dir, name) -> name.startsWith("generators-") && name.endsWith(".log"));
+        if (files == null) {
+            return new long[0];
+        }
+        return Arrays.stream(files)
+                .map(file -> file.getName().substring("generators-".length(), file.getName().length() - ".log".length()))
+                .filter(id -> !id.isEmpty() && id.chars().allMatch(Character::isDigit))
+                .mapToLong(Long::parseLong)
+                .sorted()
+                .toArray();
+    }
+
+    private File getFile(long id) {
+        return new File(this.directory, "generators-" + id + ".log");
+    }
+
+    private byte[] encode(Record record) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeByte(record.delete() ? DELETE : PUT);
+            output.writeUTF(record.world());
+            output.writeInt(record.x());
+            output.writeInt(record.y());
+            output.writeInt(record.z());
+            if (!record.delete()) {
+                output.writeLong(record.owner().getMostSignificantBits());
+                output.writeLong(record.owner().getLeastSignificantBits());
+                output.writeInt(record.type());
+                output.writeDouble(record.timer());
+                output.writeBoolean(record.corrupted());
+                output.writeDouble(record.idle());
+            }
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return ByteBuffer.allocate(8 + payload.length)
+                    .putInt(payload.length)
+                    .putInt((int) crc.getValue())
+                    .put(payload)
+                    .array();
+        } catch (IOException ex) {
+            // writing into memory doesn't fail
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] readRecord(DataInputStream input) throws IOException {
+        try {
+            int length = input.readInt();
+            int checksum = input.readInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            input.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException ex) {
+            return null;
+        }
+    }
+
+    private Record decode(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        boolean delete = input.readByte() == DELETE;
+        String world = input.readUTF();
+        int x = input.readInt();
+        int y = input.readInt();
+        int z = input.readInt();
+        if (delete) {
+            return new Record(true, null, world, x, y, z, -1, 0, false, 0);
+        }
+        UUID owner = new UUID(input.readLong(), input.readLong());
+        int type = input.readInt();
+        double timer = input.readDouble();
+        boolean corrupted = input.readBoolean();
+        // the records of older versions end before the idle time
+        double idle = input.available() >= 8 ? input.readDouble() : 0;
+        return new Record(false, owner, world, x, y, z, type, timer, corrupted, idle);
+    }
+
+    /**
+     * A generator that has been placed or changed, or removed if {@code delete} is true.
+     */
+    public record Record(boolean delete, UUID owner, String world, int x, int y, int z, int type, double timer,
+                         boolean corrupted, double idle) {}
+
+}
@@ -0,0 +1,209 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.mdlib.utils.Logger;
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.managers.DatabaseManager;
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.Generator;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Streams the active generators out of the database in batches, the rows are decoded on a small
+ * worker pool while the next batch is being read.
+ * <p>
+ * The chunks around the online players are loaded first, then every world with players in it,
+ * and then the remaining worlds.
+ */
+public class GeneratorLoader {
+
+    private static final String COLUMNS = "owner, world, x, y, z, generator_type, timer, is_corrupted, idle_time";
+
+    private final DatabaseManager dbm;
+    private final GeneratorRegistry registry;
+    // whether some stored generators couldn't be loaded, they're still in the database
+    private volatile boolean partial;
+
+    public GeneratorLoader(DatabaseManager dbm, GeneratorRegistry registry) {
+        this.dbm = dbm;
+        this.registry = registry;
+    }
+
+    /**
+     * Load every stored generator, the consumer is called on the calling thread,
+     * one decoded batch at a time. A generator can be passed more than once, unless its area
+     * has been marked ready in the progress already.
+     *
+     * @return how many rows have been read
+     */
+    public int load(Consumer<List<ActiveGenerator>> consumer, LoadProgress progress) {
+        int fetchSize = Math.max(1, Settings.LOAD_FETCH_SIZE);
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService decoders = Executors.newFixedThreadPool(Math.max(1, Settings.LOAD_THREADS), runnable -> {
+            Thread thread = new Thread(runnable, "NextGens Generator Loader #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            int rows = 0;
+            List<Area> areas = this.getPlayerAreas();
+            // the generators the online players can see
+            String areaQuery = "SELECT " + COLUMNS + " FROM " + DatabaseManager.GENERATOR_TABLE +
+                    " WHERE world=? AND chunk_x BETWEEN ? AND ? AND chunk_z BETWEEN ? AND ?";
+            for (Area area : areas) {
+                rows += this.stream(areaQuery, statement -> {
+                    statement.setString(1, area.world());
+                    statement.setInt(2, area.chunkX() - area.radius());
+                    statement.setInt(3, area.chunkX() + area.radius());
+                    statement.setInt(4, area.chunkZ() - area.radius());
+                    statement.setInt(5, area.chunkZ() + area.radius());
+                }, fetchSize, decoders, consumer);
+                progress.markArea(area.world(), area.chunkX(), area.chunkZ(), area.radius());
+            }
+            // then world by world, the worlds with players go first
+            String worldQuery = "SELECT " + COLUMNS + " FROM " + DatabaseManager.GENERATOR_TABLE + " WHERE world=?";
+            List<String> worlds = this.getWorlds(areas);
+            progress.setStoredWorlds(worlds);
+            for (String world : worlds) {
+                // the generators of unloaded worlds can't be placed anywhere
+                if (Bukkit.getWorld(world) == null) {
+                    this.partial = true;
+                    continue;
+                }
+                rows += this.stream(worldQuery, statement -> statement.setString(1, world), fetchSize, decoders, consumer);
+                progress.markWorld(world);
+            }
+            return rows;
+        } finally {
+            decoders.shutdown();
+        }
+    }
+
+    /**
+     * @return whether some stored generators have been skipped, because their world or generator is missing
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    private int stream(String query, DatabaseManager.QueryConsumer<PreparedStatement> parameters, int fetchSize,
+                       ExecutorService decoders, Consumer<List<ActiveGenerator>> consumer) {
+        int rows = 0;
+        CompletableFuture<List<ActiveGenerator>> pending = null;
+        try (Connection connection = this.dbm.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+
+            parameters.accept(statement);
+            statement.setFetchSize(fetchSize);
+            try (ResultSet result = statement.executeQuery()) {
+                List<StoredGenerator> batch = new ArrayList<>(fetchSize);
+                while (result.next()) {
+                    batch.add(new StoredGenerator(result.getBytes(1), result.getString(2), result.getInt(3), result.getInt(4),
+                            result.getInt(5), result.getInt(6), result.getDouble(7), result.getBoolean(8), result.getDouble(9)));
+                    rows++;
+                    if (batch.size() < fetchSize) {
+                        continue;
+                    }
+                    // decode this batch while the next one is being read
+                    CompletableFuture<List<ActiveGenerator>> decoding = this.decode(batch, decoders);
+                    if (pending != null) {
+                        consumer.accept(pending.join());
+                    }
+                    pending = decoding;
+                    batch = new ArrayList<>(fetchSize);
+                }
+                if (!batch.isEmpty()) {
+                    CompletableFuture<List<ActiveGenerator>> decoding = this.decode(batch, decoders);
+                    if (pending != null) {
+                        consumer.accept(pending.join());
+                    }
+                    pending = decoding;
+                }
+            }
+        } catch (SQLException ex) {
+            Logger.severe("An error occurred while loading the active generators!");
+            ex.printStackTrace();
+            this.partial = true;
+        }
+        // whatever has been read is still loaded
+        if (pending != null) {
+            consumer.accept(pending.join());
+        }
+        return rows;
+    }
+
+    private CompletableFuture<List<ActiveGenerator>> decode(List<StoredGenerator> batch, ExecutorService decoders) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<ActiveGenerator> decoded = new ArrayList<>(batch.size());
+            World world = null;
+            for (StoredGenerator stored : batch) {
+                if (world == null || !world.getName().equals(stored.world())) {
+                    world = Bukkit.getWorld(stored.world());
+                }
+                Generator generator = this.registry.getGenerator(stored.type());
+                if (generator == null || world == null || stored.owner() == null) {
+                    this.partial = true;
+                    continue;
+                }
+                Location location = new Location(world, stored.x(), stored.y(), stored.z());
+                decoded.add(new ActiveGenerator(DatabaseManager.fromBytes(stored.owner()), location, generator,
+                        stored.timer(), stored.corrupted(), stored.idle()));
+            }
+            return decoded;
+        }, decoders);
+    }
+
+    /**
+     * @return the chunk area every online player can see, read on the main thread
+     */
+    private List<Area> getPlayerAreas() {
+        Callable<List<Area>> capture = () -> {
+            List<Area> areas = new ArrayList<>();
+            int radius = Bukkit.getViewDistance();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                Chunk chunk = player.getLocation().getChunk();
+                areas.add(new Area(chunk.getWorld().getName(), chunk.getX(), chunk.getZ(), radius));
+            }
+            return areas;
+        };
+        try {
+            if (Bukkit.isPrimaryThread()) {
+                return capture.call();
+            }
+            return Bukkit.getScheduler().callSyncMethod(NextGens.getInstance(), capture).get();
+        } catch (Exception ex) {
+            // not worth failing the load over, everything is loaded in the next step anyway
+            return Collections.emptyList();
+        }
+    }
+
+    private List<String> getWorlds(List<Area> areas) {
+        Set<String> worlds = new LinkedHashSet<>();
+        areas.forEach(area -> worlds.add(area.world()));
+        this.dbm.executeQuery("SELECT DISTINCT world FROM " + DatabaseManager.GENERATOR_TABLE, result -> {
+            while (result.next()) {
+                worlds.add(result.getString(1));
+            }
+        });
+        return new ArrayList<>(worlds);
+    }
+
+    private record Area(String world, int chunkX, int chunkZ, int radius) {}
+
+    private record StoredGenerator(byte[] owner, String world, int x, int y, int z, int type, double timer, boolean corrupted,
+                                   double idle) {}
+
+}
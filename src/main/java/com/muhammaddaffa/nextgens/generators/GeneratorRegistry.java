@@ -0,0 +1,271 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.mdlib.utils.Logger;
+import com.muhammaddaffa.nextgens.managers.DatabaseManager;
+import com.muhammaddaffa.nextgens.objects.Generator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns every generator id into a stable small integer, the hot paths compare
+ * these integers instead of the string ids.
+ * <p>
+ * The mapping is stored in its own table, so the same id always gets the same integer
+ * across restarts, and a renamed generator keeps the integer of its previous id.
+ */
+public class GeneratorRegistry {
+
+    // another server might take the same integer at the same time, the assignment is tried again
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final DatabaseManager dbm;
+
+    // only changed while the registry is locked, read without locking
+    private final Map<String, Integer> types = new ConcurrentHashMap<>();
+    // both arrays are replaced on write, so they can be read without locking
+    private volatile String[] ids = new String[0];
+    private volatile Generator[] generators = new Generator[0];
+
+    public GeneratorRegistry(DatabaseManager dbm) {
+        this.dbm = dbm;
+    }
+
+    /**
+     * Load the stored mapping, must be called before any generator is interned.
+     */
+    public synchronized void load() {
+        String query = "SELECT type_index, generator_id FROM " + DatabaseManager.GENERATOR_TYPE_TABLE;
+        this.dbm.executeQuery(query, result -> {
+            while (result.next()) {
+                int type = result.getInt(1);
+                String id = result.getString(2);
+                if (id == null || type < 0) {
+                    continue;
+                }
+                this.types.put(id, type);
+                this.ensureCapacity(type + 1);
+                this.ids[type] = id;
+            }
+        });
+        Logger.info("Successfully loaded " + this.types.size() + " generator types!");
+    }
+
+    /**
+     * @return the integer of the id, a new one is assigned and stored if the id is unknown
+     */
+    public int intern(@NotNull String id) {
+        return this.intern(id, Collections.emptyList());
+    }
+
+    /**
+     * Get the integer of the id, if the id is unknown but one of the previous ids is known,
+     * the integer of the previous id is moved to the new id instead.
+     * <p>
+     * Servers can share the table, so the integer is decided by the table and only
+     * kept once it has been stored.
+     *
+     * @param previousIds the ids the generator was known as before it was renamed
+     * @throws IllegalStateException if the integer couldn't be stored
+     */
+    public synchronized int intern(@NotNull String id, @NotNull Collection<String> previousIds) {
+        Integer type = this.types.get(id);
+        if (type != null) {
+            return type;
+        }
+        // the generator has been renamed
+        for (String previous : previousIds) {
+            Integer renamed = this.types.get(previous);
+            if (renamed == null) {
+                continue;
+            }
+            int stored = this.store(id, connection -> this.rename(connection, renamed, previous, id));
+            // another server has renamed it already or has stored the new id on its own
+            if (stored >= 0) {
+                if (stored == renamed) {
+                    Logger.info("Generator '" + previous + "' has been renamed to '" + id + "'");
+                }
+                return stored;
+            }
+        }
+        // assign the next free integer
+        return this.store(id, connection -> this.insert(connection, id));
+    }
+
+    /**
+     * Run the assignment until it's stored, another server could take the same integer at the same time.
+     *
+     * @return the stored integer, or -1 if the assignment didn't store anything
+     */
+    private int store(String id, TypeAssignment assignment) {
+        int[] stored = {-1};
+        SQLException failure = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            SQLException[] error = new SQLException[1];
+            if (this.dbm.write(connection -> stored[0] = assignment.assign(connection), ex -> error[0] = ex)) {
+                if (stored[0] >= 0) {
+                    this.put(id, stored[0]);
+                }
+                return stored[0];
+            }
+            failure = error[0];
+        }
+        throw new IllegalStateException("Failed to store the type of generator '" + id + "'", failure);
+    }
+
+    private int rename(Connection connection, int type, String previous, String id) throws SQLException {
+        int existing = this.select(connection, id);
+        if (existing >= 0) {
+            return existing;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + DatabaseManager.GENERATOR_TYPE_TABLE +
+                " SET generator_id=? WHERE type_index=? AND generator_id=?;")) {
+            statement.setString(1, id);
+            statement.setInt(2, type);
+            statement.setString(3, previous);
+            // the row has been changed by another server, the id gets its own integer
+            return statement.executeUpdate() == 1 ? type : -1;
+        }
+    }
+
+    private int insert(Connection connection, String id) throws SQLException {
+        int existing = this.select(connection, id);
+        if (existing >= 0) {
+            return existing;
+        }
+        int created = this.ids.length;
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MAX(type_index) FROM " +
+                DatabaseManager.GENERATOR_TYPE_TABLE + ";");
+             ResultSet result = statement.executeQuery()) {
+            // the integers of the other servers are taken as well
+            if (result.next() && result.getObject(1) != null) {
+                created = Math.max(created, result.getInt(1) + 1);
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + DatabaseManager.GENERATOR_TYPE_TABLE +
+                " (type_index, generator_id) VALUES (?,?);")) {
+            statement.setInt(1, created);
+            statement.setString(2, id);
+            statement.executeUpdate();
+        }
+        return created;
+    }
+
+    private int select(Connection connection, String id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT type_index FROM " +
+                DatabaseManager.GENERATOR_TYPE_TABLE + " WHERE generator_id=?;")) {
+            statement.setString(1, id);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getInt(1) : -1;
+            }
+        }
+    }
+
+    private void put(String id, int type) {
+        // the integer might still be known under the id it had before a rename
+        String previous = this.getId(type);
+        if (previous != null && !previous.equals(id)) {
+            this.types.remove(previous);
+        }
+        this.types.put(id, type);
+        this.setId(type, id);
+    }
+
+    /**
+     * Remember the latest loaded generator of its type. Generators that are removed
+     * from the config are kept, so the generators that are still placed keep working.
+     */
+    public synchronized void register(@NotNull Generator generator) {
+        int type = this.typeOf(generator.id());
+        Generator[] generators = Arrays.copyOf(this.generators, Math.max(this.generators.length, type + 1));
+        generators[type] = generator;
+        this.generators = generators;
+    }
+
+    /**
+     * @return the integer of the generator, the generator is interned if it wasn't loaded from the config
+     */
+    public int typeOf(@NotNull Generator generator) {
+        int type = this.typeOf(generator.id());
+        // generators that weren't loaded from the config are remembered as well
+        if (this.getGenerator(type) == null) {
+            this.register(generator);
+        }
+        return type;
+    }
+
+    private int typeOf(String id) {
+        int type = this.indexOf(id);
+        return type >= 0 ? type : this.intern(id);
+    }
+
+    /**
+     * @return the integer of the id, or -1 if the id has never been interned
+     */
+    public int indexOf(@Nullable String id) {
+        if (id == null) {
+            return -1;
+        }
+        Integer type = this.types.get(id);
+        return type == null ? -1 : type;
+    }
+
+    @Nullable
+    public String getId(int type) {
+        String[] ids = this.ids;
+        return type >= 0 && type < ids.length ? ids[type] : null;
+    }
+
+    @Nullable
+    public Generator getGenerator(int type) {
+        Generator[] generators = this.generators;
+        return type >= 0 && type < generators.length ? generators[type] : null;
+    }
+
+    /**
+     * @return the integers of the ids, unknown ids are ignored
+     */
+    public BitSet toBitSet(@Nullable Collection<String> ids) {
+        BitSet bits = new BitSet();
+        if (ids == null) {
+            return bits;
+        }
+        for (String id : ids) {
+            int type = this.indexOf(id);
+            if (type >= 0) {
+                bits.set(type);
+            }
+        }
+        return bits;
+    }
+
+    public int size() {
+        return this.ids.length;
+    }
+
+    private void setId(int type, String id) {
+        this.ensureCapacity(type + 1);
+        String[] ids = Arrays.copyOf(this.ids, this.ids.length);
+        ids[type] = id;
+        this.ids = ids;
+    }
+
+    private void ensureCapacity(int size) {
+        if (this.ids.length < size) {
+            this.ids = Arrays.copyOf(this.ids, size);
+        }
+    }
+
+    private interface TypeAssignment {
+
+        int assign(Connection connection) throws SQLException;
+
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.mdlib.utils.Logger;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+import com.muhammaddaffa.nextgens.objects.GeneratorStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary copy of every active generator, read through a memory-mapped file at startup
+ * so the generators don't have to be parsed out of the database one row at a time.
+ * <p>
+ * The file starts with a header and the names of the worlds, followed by one fixed-size record
+ * per generator and a checksum of everything before it. A snapshot of another version,
+ * or with a wrong checksum, is ignored.
+ */
+public final class GeneratorSnapshot {
+
+    private static final int MAGIC = 0x4E475353; // NGSS
+    // bump it whenever the layout or the block key packing changes
+    private static final int VERSION = 2;
+    // type, world, position, owner, timer, flags, idle time
+    private static final int RECORD_SIZE = 4 + 4 + 8 + 16 + 8 + 1 + 8;
+    private static final byte CORRUPTED = 1;
+
+    private GeneratorSnapshot() {}
+
+    /**
+     * Write the snapshot next to the file first, and replace the file once it's complete.
+     */
+    public static void write(File file, GeneratorStore store) throws IOException {
+        // only the copy is taken under the store lock, the file is written without it
+        GeneratorStore.Rows rows = store.copyRows();
+        List<String> worlds = new ArrayList<>();
+        ByteBuffer body = ByteBuffer.allocate(RECORD_SIZE * rows.size());
+        rows.forEach((type, world, position, ownerMost, ownerLeast, timer, corrupted, idle) -> {
+            // the world ids are only valid until the server stops, the names are stored in the header
+            while (worlds.size() <= world) {
+                worlds.add(BlockKey.worldName(worlds.size()));
+            }
+            body.putInt(type)
+                    .putInt(world)
+                    .putLong(position)
+                    .putLong(ownerMost)
+                    .putLong(ownerLeast)
+                    .putDouble(timer)
+                    .put(corrupted ? CORRUPTED : 0)
+                    .putDouble(idle);
+        });
+        body.flip();
+
+        ByteBuffer header = ByteBuffer.allocate(1024 + worlds.stream().mapToInt(name -> 2 + name.length() * 4).sum());
+        header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+        header.putInt(worlds.size());
+        for (String world : worlds) {
+            byte[] name = world.getBytes(StandardCharsets.UTF_8);
+            header.putShort((short) name.length).put(name);
+        }
+        header.putInt(rows.size());
+        header.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate());
+        crc.update(body.duplicate());
+        ByteBuffer footer = ByteBuffer.allocate(8).putLong(crc.getValue()).flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] buffers = {header, body, footer};
+            while (footer.hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the snapshot, the visitor is only called once the whole file has been verified.
+     *
+     * @return false if there is no usable snapshot, the generators have to be loaded from the database then
+     */
+    public static boolean read(File file, EntryVisitor visitor) {
+        if (!file.exists()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 32 || size > Integer.MAX_VALUE) {
+                return reject("it's broken");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            // the checksum covers everything before it
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit((int) size - 8));
+            if (crc.getValue() != buffer.getLong((int) size - 8)) {
+                return reject("the checksum doesn't match");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return reject("it's from another version");
+            }
+            buffer.getLong();
+            String[] worlds = new String[buffer.getInt()];
+            for (int i = 0; i < worlds.length; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                worlds[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            int count = buffer.getInt();
+            if ((long) count * RECORD_SIZE != size - 8 - buffer.position()) {
+                return reject("it's broken");
+            }
+            for (int i = 0; i < count; i++) {
+                int type = buffer.getInt();
+                int world = buffer.getInt();
+                long position = buffer.getLong();
+                long ownerMost = buffer.getLong();
+                long ownerLeast = buffer.getLong();
+                double timer = buffer.getDouble();
+                boolean corrupted = (buffer.get() & CORRUPTED) != 0;
+                double idle = buffer.getDouble();
+                visitor.visit(type, worlds[world], position, ownerMost, ownerLeast, timer, corrupted, idle);
+            }
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            Logger.warning("Failed to read the generator snapshot, loading from the database instead!");
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    private static boolean reject(String reason) {
+        Logger.warning("Ignoring the generator snapshot because " + reason + ", loading from the database instead!");
+        return false;
+    }
+
+    public interface EntryVisitor {
+
+        void visit(int type, String world, long position, long ownerMost, long ownerLeast, double timer, boolean corrupted,
+                   double idle);
+
+    }
+
+}
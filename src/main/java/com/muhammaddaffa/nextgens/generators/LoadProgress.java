@@ -0,0 +1,95 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.nextgens.generators.scheduler.ChunkIndex;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Which parts of the worlds have their generators loaded while the startup load is still running,
+ * only the blocks that could be a generator that isn't known yet have to wait for the whole load.
+ * <p>
+ * An area or a world is ready once all of its stored generators have been added.
+ * Chunks with changes in the journal are only ready once the journal has been replayed at the end.
+ */
+public final class LoadProgress {
+
+    private final Set<String> readyWorlds = ConcurrentHashMap.newKeySet();
+    private final List<Area> readyAreas = new CopyOnWriteArrayList<>();
+    private final Set<Long> journalChunks = ConcurrentHashMap.newKeySet();
+    // the worlds with stored generators, null until they're known
+    private volatile Set<String> storedWorlds;
+    private volatile boolean complete;
+
+    /**
+     * @return true if the generator at the block, if there is one, has been loaded already
+     */
+    public boolean isReady(BlockKey key) {
+        if (this.complete) {
+            return true;
+        }
+        if (this.journalChunks.contains(ChunkIndex.pack(key))) {
+            return false;
+        }
+        String world = key.getWorldName();
+        Set<String> storedWorlds = this.storedWorlds;
+        if ((storedWorlds != null && !storedWorlds.contains(world)) || this.readyWorlds.contains(world)) {
+            return true;
+        }
+        int chunkX = key.getChunkX();
+        int chunkZ = key.getChunkZ();
+        for (Area area : this.readyAreas) {
+            if (area.contains(world, chunkX, chunkZ)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Must be called before any area or world is marked ready.
+     */
+    public void addJournalChunk(BlockKey key) {
+        this.journalChunks.add(ChunkIndex.pack(key));
+    }
+
+    public void setStoredWorlds(Collection<String> worlds) {
+        this.storedWorlds = new HashSet<>(worlds);
+    }
+
+    public void markArea(String world, int chunkX, int chunkZ, int radius) {
+        this.readyAreas.add(new Area(world, chunkX, chunkZ, radius));
+    }
+
+    public void markWorld(String world) {
+        this.readyWorlds.add(world);
+        // the areas of the world aren't needed anymore
+        this.readyAreas.removeIf(area -> area.world().equals(world));
+    }
+
+    public void complete() {
+        this.complete = true;
+        this.readyAreas.clear();
+        this.readyWorlds.clear();
+        this.journalChunks.clear();
+    }
+
+    private record Area(String world, int chunkX, int chunkZ, int radius) {
+
+        boolean contains(String world, int chunkX, int chunkZ) {
+            return Math.abs(chunkX - this.chunkX) <= this.radius && Math.abs(chunkZ - this.chunkZ) <= this.radius &&
+                    this.world.equals(world);
+        }
+
+    }
+
+}
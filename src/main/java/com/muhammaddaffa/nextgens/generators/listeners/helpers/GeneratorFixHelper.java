@@ -31,6 +31,8 @@ public class GeneratorFixHelper {
         VaultEconomy.withdraw(player, generator.fixCost());
         // fix the generator
         active.setCorrupted(false);
+        // Save the generator
+        NextGens.getInstance().getGeneratorManager().saveActiveGenerator(active);
         // visual actions
         VisualAction.send(player, NextGens.DEFAULT_CONFIG.getConfig(), "corrupt-fix-options", new Placeholder()
                 .add("{gen}", generator.displayName())
@@ -40,8 +42,6 @@ public class GeneratorFixHelper {
             if (NextGens.DEFAULT_CONFIG.getConfig().getBoolean("corrupt-fix-options.particles")) {
                 GeneratorParticle.successParticle(block, generator);
             }
-            // Save the generator
-            Executor.async(() -> NextGens.getInstance().getGeneratorManager().saveActiveGenerator(active));
         });
         // give cashback to the player
         Utils.performCashback(player, NextGens.getInstance().getUserManager(), generator.fixCost());
@@ -0,0 +1,109 @@
+package com.muhammaddaffa.nextgens.generators.runnables;
+
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sets the blocks of removed generators to air, a few of them every tick
+ * within the configured time budget, so removing hundreds of generators at once
+ * doesn't freeze the server.
+ */
+public class BlockClearTask extends BukkitRunnable {
+
+    private static BlockClearTask runnable;
+
+    public static void start(GeneratorManager generatorManager) {
+        if (runnable != null) {
+            runnable.cancel();
+            runnable = null;
+        }
+        // set back the runnable
+        runnable = new BlockClearTask(generatorManager);
+        // run the task
+        runnable.runTaskTimer(NextGens.getInstance(), 1L, 1L);
+    }
+
+    /**
+     * Queue the blocks of the removed generators to be cleared, they're cleared right away
+     * if the task isn't running.
+     */
+    public static void submit(Collection<ActiveGenerator> removed) {
+        BlockClearTask task = runnable;
+        if (task == null) {
+            removed.forEach(active -> active.getLocation().getBlock().setType(Material.AIR));
+            return;
+        }
+        task.queue.addAll(removed);
+    }
+
+    /**
+     * Clear every queued block right away, call it on the main thread before the server stops.
+     */
+    public static void flush() {
+        BlockClearTask task = runnable;
+        if (task == null) {
+            return;
+        }
+        ActiveGenerator active;
+        while ((active = task.queue.poll()) != null) {
+            task.clear(active);
+        }
+    }
+
+    private final Queue<ActiveGenerator> queue = new ConcurrentLinkedQueue<>();
+    private final GeneratorManager generatorManager;
+
+    private BlockClearTask(GeneratorManager generatorManager) {
+        this.generatorManager = generatorManager;
+    }
+
+    @Override
+    public void run() {
+        drain(this.queue, this::clear, TimeUnit.MICROSECONDS.toNanos((long) (Settings.BLOCK_CLEAR_BUDGET * 1000)));
+    }
+
+    /**
+     * Take elements off the queue until it's empty or the budget is used up.
+     *
+     * @return how many elements have been taken
+     */
+    static <T> int drain(Queue<T> queue, Consumer<T> consumer, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int drained = 0;
+        T element;
+        // always take at least one, so the queue can't stall
+        while ((element = queue.poll()) != null) {
+            consumer.accept(element);
+            drained++;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return drained;
+    }
+
+    private void clear(ActiveGenerator active) {
+        // a new generator could have been placed there in the meantime
+        if (active.getKey() == null || this.generatorManager.getActiveGenerator(active.getKey()) != null) {
+            return;
+        }
+        Block block = active.getLocation().getBlock();
+        // leave the block alone if it has been replaced already
+        if (active.getGenerator() != null && block.getType() != active.getGenerator().item().getType()) {
+            return;
+        }
+        block.setType(Material.AIR);
+    }
+
+}
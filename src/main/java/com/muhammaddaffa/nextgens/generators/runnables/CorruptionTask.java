@@ -84,7 +84,7 @@ public class CorruptionTask extends BukkitRunnable {
                         // increment the counter
                         actuallyCorrupted.getAndIncrement();
                         // Save the generator
-                        Executor.async(() -> this.generatorManager.saveActiveGenerator(active));
+                        this.generatorManager.saveActiveGenerator(active);
                     }
                 });
             }
@@ -100,27 +100,25 @@ public class CorruptionTask extends BukkitRunnable {
         // get the percentage
         int percentage = Settings.CORRUPTION_PERCENTAGE;
         // get total generators that will be infected
-        List<ActiveGenerator> activeGenerators = this.generatorManager.getActiveGenerator()
-                .stream()
-                .filter(active -> !active.isCorrupted())
-                .toList();
+        // blacklisted generators are filtered by their interned id while scanning the store
+        BitSet blacklisted = this.generatorManager.getRegistry().toBitSet(Settings.CORRUPTION_BLACKLISTED_GENERATORS);
+        List<ActiveGenerator> activeGenerators = this.generatorManager.getStore().getCorruptible(blacklisted);
         int total = activeGenerators.size();
         int totalInfected = (total * percentage) / 100;
         // get random active generator
-        List<String> blacklisted = Settings.CORRUPTION_BLACKLISTED_GENERATORS;
         Set<Integer> checked = new HashSet<>();
         List<ActiveGenerator> corrupted = new ArrayList<>();
 
-        while (corrupted.size() < totalInfected) {
+        while (corrupted.size() < totalInfected && checked.size() < total) {
             // get random active generator
             int index = ThreadLocalRandom.current().nextInt(total);
             if (checked.contains(index)) {
                 continue;
             }
             ActiveGenerator active = activeGenerators.get(index);
-            // blacklist check, or corrupted check
-            if (active == null || active.getGenerator() == null ||
-                    blacklisted.contains(active.getGenerator().id()) || active.isCorrupted()) {
+            // the generator could have been corrupted in the meantime
+            if (active == null || active.getGenerator() == null || active.isCorrupted()) {
+                checked.add(index);
                 continue;
             }
             // proceed to corrupt the generator
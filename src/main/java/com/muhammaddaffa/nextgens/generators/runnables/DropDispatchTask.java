@@ -0,0 +1,219 @@
+package com.muhammaddaffa.nextgens.generators.runnables;
+
+import com.muhammaddaffa.mdlib.utils.Logger;
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.api.events.generators.GeneratorGenerateItemEvent;
+import com.muhammaddaffa.nextgens.autosell.Autosell;
+import com.muhammaddaffa.nextgens.generators.scheduler.GeneratorScheduler;
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import com.muhammaddaffa.nextgens.managers.UserManager;
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.Drop;
+import com.muhammaddaffa.nextgens.objects.DropSampler;
+import com.muhammaddaffa.nextgens.objects.Generator;
+import com.muhammaddaffa.nextgens.objects.User;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.Bukkit;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Main thread half of the generator tick.
+ * <p>
+ * The async generator tasks collect due generators into a batch, this task drains
+ * that batch once every tick within the configured time budget. Whatever doesn't fit
+ * into the budget is carried over into the next tick.
+ */
+public class DropDispatchTask extends BukkitRunnable {
+
+    private static DropDispatchTask runnable;
+
+    public static void start(GeneratorManager generatorManager, UserManager userManager) {
+        if (runnable != null) {
+            runnable.cancel();
+            runnable = null;
+        }
+        // set back the runnable
+        runnable = new DropDispatchTask(generatorManager, userManager);
+        // run the task
+        runnable.runTaskTimer(NextGens.getInstance(), 1L, 1L);
+    }
+
+    /**
+     * Queue a drop for the generator, does nothing if the generator already has a drop in-flight.
+     *
+     * @return true if the drop has been queued
+     */
+    public static boolean submit(ActiveGenerator active, Generator chosenGenerator, int dropAmount) {
+        DropDispatchTask task = runnable;
+        if (task == null || !active.markInFlight()) {
+            return false;
+        }
+        task.queue.add(() -> {
+            try {
+                task.dispatch(active, chosenGenerator, dropAmount);
+            } catch (RuntimeException ex) {
+                // schedule the next drop anyway, otherwise the generator would be stuck
+                active.setTimer(0);
+                throw ex;
+            } finally {
+                active.clearInFlight();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Queue the drops owed to a generator that caught up after its chunk was loaded again.
+     *
+     * @param drops      how many times every drop has been rolled
+     * @param dropAmount how many times every roll is generated
+     * @return true if the drops have been queued
+     */
+    public static boolean submitAccrual(GeneratorScheduler.Accrual accrual, Generator chosenGenerator,
+                                        List<DropSampler.Roll> drops, int dropAmount) {
+        DropDispatchTask task = runnable;
+        if (task == null) {
+            return false;
+        }
+        task.queue.add(() -> task.dispatchAccrual(accrual, chosenGenerator, drops, dropAmount));
+        return true;
+    }
+
+    /**
+     * Queue a custom drop job, the caller is responsible for its own de-duplication.
+     *
+     * @return true if the job has been queued
+     */
+    public static boolean submit(Runnable job) {
+        DropDispatchTask task = runnable;
+        if (task == null) {
+            return false;
+        }
+        task.queue.add(job);
+        return true;
+    }
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final GeneratorManager generatorManager;
+    private final UserManager userManager;
+
+    public DropDispatchTask(GeneratorManager generatorManager, UserManager userManager) {
+        this.generatorManager = generatorManager;
+        this.userManager = userManager;
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos((long) (Settings.DROP_DISPATCH_BUDGET * 1000));
+        Runnable job;
+        // always process at least one drop, so the queue can't stall
+        while ((job = this.queue.poll()) != null) {
+            try {
+                job.run();
+            } catch (Exception ex) {
+                Logger.severe("Failed to dispatch a generator drop: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    private void dispatch(ActiveGenerator active, Generator chosenGenerator, int dropAmount) {
+        Generator generator = active.getGenerator();
+        // the generator could have been removed while the drop is queued
+        if (generator == null || this.generatorManager.getActiveGenerator(active.getKey()) != active) {
+            return;
+        }
+        Block block = active.getLocation().getBlock();
+        // set the block to the desired type
+        if (Settings.FORCE_UPDATE_BLOCKS) {
+            block.setType(generator.item().getType());
+        }
+        // Generate the random drop
+        Drop drop = chosenGenerator.getRandomDrop();
+        // create the event
+        GeneratorGenerateItemEvent generatorEvent = new GeneratorGenerateItemEvent(chosenGenerator, active, drop, dropAmount);
+        Bukkit.getPluginManager().callEvent(generatorEvent);
+        if (generatorEvent.isCancelled()) {
+            active.setTimer(0);
+            return;
+        }
+        // Set the drop
+        drop = generatorEvent.getDrop();
+        int amount = generatorEvent.getDropAmount();
+        if (drop != null && amount > 0) {
+            this.deliver(active, block, drop, amount, generatorEvent.isDropItem());
+        }
+        // set the timer to 0, this will schedule the next drop
+        active.setTimer(0);
+    }
+
+    private void dispatchAccrual(GeneratorScheduler.Accrual accrual, Generator chosenGenerator,
+                                 List<DropSampler.Roll> drops, int dropAmount) {
+        ActiveGenerator active = accrual.active();
+        // the generator could have been removed while the drops are queued
+        if (active.getGenerator() == null || this.generatorManager.getActiveGenerator(active.getKey()) != active) {
+            return;
+        }
+        // the owner left in the meantime, the owed time is kept until they're back
+        if (Bukkit.getPlayer(active.getOwner()) == null) {
+            this.generatorManager.getScheduler().defer(accrual);
+            return;
+        }
+        Block block = active.getLocation().getBlock();
+        for (DropSampler.Roll roll : drops) {
+            int amount = (int) Math.min(Integer.MAX_VALUE, roll.amount() * dropAmount);
+            // every drop type goes through the event once with the whole amount
+            GeneratorGenerateItemEvent generatorEvent = new GeneratorGenerateItemEvent(chosenGenerator, active, roll.drop(), amount);
+            Bukkit.getPluginManager().callEvent(generatorEvent);
+            if (generatorEvent.isCancelled()) {
+                continue;
+            }
+            Drop drop = generatorEvent.getDrop();
+            amount = generatorEvent.getDropAmount();
+            if (drop != null && amount > 0) {
+                this.deliver(active, block, drop, amount, generatorEvent.isDropItem());
+            }
+        }
+    }
+
+    /**
+     * Sell the drop through the owner's autosell, or spawn it on top of the generator.
+     */
+    private void deliver(ActiveGenerator active, Block block, Drop drop, int amount, boolean dropItem) {
+        Player player = Bukkit.getPlayer(active.getOwner());
+        // only online owners can autosell, offline owners don't need their user in memory
+        User user = player == null ? null : this.userManager.getUser(player);
+        List<ItemStack> items = drop.createItems(amount);
+        // check if player has autosell
+        if (user != null && drop.item() != null && Autosell.hasAutosellGensPermission(player) &&
+                user.isToggleGensAutoSell()) {
+            // a sell can fail part-way, only the stacks that haven't been sold are spawned
+            Iterator<ItemStack> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                if (!NextGens.getInstance().getSellManager().sell(player, iterator.next())) {
+                    break;
+                }
+                iterator.remove();
+            }
+        }
+        // spawn the drop once for the whole amount, without the items that have been sold
+        drop.spawn(block, Bukkit.getOfflinePlayer(active.getOwner()), dropItem ? items : List.of(), amount);
+    }
+
+}
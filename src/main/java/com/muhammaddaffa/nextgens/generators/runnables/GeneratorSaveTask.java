@@ -0,0 +1,41 @@
+package com.muhammaddaffa.nextgens.generators.runnables;
+
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Periodically writes the changed generators to the database in batches,
+ * each run stops once the configured flush budget has been used up.
+ */
+public class GeneratorSaveTask extends BukkitRunnable {
+
+    private static GeneratorSaveTask currentTask;
+
+    public static void start(GeneratorManager generatorManager) {
+        if (currentTask != null) {
+            currentTask.cancel();
+            currentTask = null;
+        }
+        // without auto-save every change is written right away
+        if (!Settings.AUTO_SAVE_ENABLED) {
+            return;
+        }
+        currentTask = new GeneratorSaveTask(generatorManager);
+        long intervalTicks = Math.max(1, Settings.AUTO_SAVE_INTERVAL) * 20L;
+        currentTask.runTaskTimerAsynchronously(NextGens.getInstance(), intervalTicks, intervalTicks);
+    }
+
+    private final GeneratorManager generatorManager;
+
+    private GeneratorSaveTask(GeneratorManager generatorManager) {
+        this.generatorManager = generatorManager;
+    }
+
+    @Override
+    public void run() {
+        this.generatorManager.flushActiveGenerators(Math.max(1, Settings.AUTO_SAVE_FLUSH_BUDGET));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.muhammaddaffa.nextgens.generators.runnables;
+
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Periodically writes the snapshot of the active generators, so the journal that has
+ * to be replayed on top of it at startup stays short.
+ */
+public class GeneratorSnapshotTask extends BukkitRunnable {
+
+    private static GeneratorSnapshotTask currentTask;
+
+    public static void start(GeneratorManager generatorManager) {
+        if (currentTask != null) {
+            currentTask.cancel();
+            currentTask = null;
+        }
+        // the snapshot is only used together with the journal
+        if (!Settings.SNAPSHOT_ENABLED || !Settings.JOURNAL_ENABLED) {
+            return;
+        }
+        currentTask = new GeneratorSnapshotTask(generatorManager);
+        long intervalTicks = Math.max(1, Settings.SNAPSHOT_INTERVAL) * 60L * 20L;
+        currentTask.runTaskTimerAsynchronously(NextGens.getInstance(), intervalTicks, intervalTicks);
+    }
+
+    private final GeneratorManager generatorManager;
+
+    private GeneratorSnapshotTask(GeneratorManager generatorManager) {
+        this.generatorManager = generatorManager;
+    }
+
+    @Override
+    public void run() {
+        this.generatorManager.writeSnapshot();
+    }
+
+}
@@ -1,41 +1,35 @@
 package com.muhammaddaffa.nextgens.generators.runnables;
 
-import com.muhammaddaffa.mdlib.utils.Executor;
-import com.muhammaddaffa.mdlib.utils.LocationUtils;
 import com.muhammaddaffa.nextgens.NextGens;
-import com.muhammaddaffa.nextgens.api.events.generators.GeneratorGenerateItemEvent;
-import com.muhammaddaffa.nextgens.autosell.Autosell;
-import com.muhammaddaffa.nextgens.objects.Event;
-import com.muhammaddaffa.nextgens.managers.EventManager;
 import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+import com.muhammaddaffa.nextgens.objects.DropSampler;
 import com.muhammaddaffa.nextgens.generators.CorruptedHologram;
-import com.muhammaddaffa.nextgens.objects.Drop;
+import com.muhammaddaffa.nextgens.generators.scheduler.GeneratorPlan;
+import com.muhammaddaffa.nextgens.generators.scheduler.GeneratorScheduler;
+import com.muhammaddaffa.nextgens.generators.scheduler.WorldSnapshot;
 import com.muhammaddaffa.nextgens.objects.Generator;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
-import com.muhammaddaffa.nextgens.sell.SellDataCalculator;
-import com.muhammaddaffa.nextgens.objects.User;
-import com.muhammaddaffa.nextgens.managers.UserManager;
 import com.muhammaddaffa.nextgens.utils.Settings;
 import org.bukkit.Bukkit;
-import org.bukkit.block.Block;
-import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GeneratorTask extends BukkitRunnable {
 
 
     private static GeneratorTask runnable;
 
-    public static void start(GeneratorManager generatorManager, EventManager eventManager, UserManager userManager) {
+    public static void start(GeneratorManager generatorManager) {
         if (runnable != null) {
             runnable.cancel();
             runnable = null;
         }
         // set back the runnable
-        runnable = new GeneratorTask(generatorManager, eventManager, userManager);
+        runnable = new GeneratorTask(generatorManager);
         // run the task
         runnable.runTaskTimerAsynchronously(NextGens.getInstance(), 20L, 5L);
     }
@@ -54,177 +48,110 @@ public class GeneratorTask extends BukkitRunnable {
         runnable.forceRemoveHologram(active);
     }
 
-    private final Map<String, CorruptedHologram> hologramMap = new HashMap<>();
+    private final Map<BlockKey, CorruptedHologram> hologramMap = new ConcurrentHashMap<>();
 
     private final GeneratorManager generatorManager;
-    private final EventManager eventManager;
-    private final UserManager userManager;
 
-    public GeneratorTask(GeneratorManager generatorManager, EventManager eventManager, UserManager userManager) {
+    public GeneratorTask(GeneratorManager generatorManager) {
         this.generatorManager = generatorManager;
-        this.eventManager = eventManager;
-        this.userManager = userManager;
     }
 
     @Override
     public void run() {
-        // loop active generators
-        for (ActiveGenerator active : this.generatorManager.getActiveGenerator()) {
+        // the server state is captured on the main thread, never touch Bukkit from here
+        WorldSnapshot snapshot = WorldSnapshot.current();
+        if (snapshot == null) {
+            return;
+        }
+        GeneratorScheduler scheduler = this.generatorManager.getScheduler();
+        // refresh the hologram of generators that got corrupted or fixed
+        ActiveGenerator updated;
+        while ((updated = scheduler.pollHologramUpdate()) != null) {
+            this.updateHologram(scheduler, updated);
+        }
+        // pay out generators that caught up after their chunk was loaded again
+        GeneratorScheduler.Accrual accrual;
+        while ((accrual = scheduler.pollAccrual()) != null) {
+            this.accrue(scheduler, snapshot, accrual);
+        }
+        // only loop through generators that are due to drop, generators in unloaded chunks are suspended
+        for (ActiveGenerator active : scheduler.advance()) {
             // get variables
             Generator generator = active.getGenerator();
-            Player player = Bukkit.getPlayer(active.getOwner());
-            Event event = this.eventManager.getActiveEvent();
-            User user = this.userManager.getUser(active.getOwner());
-            // if generator is invalid or chunk is not loaded, skip it
-            if (generator == null || !active.isChunkLoaded()) {
+            // if generator is invalid, skip it
+            if (generator == null) {
                 continue;
             }
-            if (active.getLocation().getWorld() == null ||
-                    Settings.BLACKLISTED_WORLDS.contains(active.getLocation().getWorld().getName())) {
+            if (!snapshot.isWorkingWorld(active.getKey())) {
+                scheduler.park(active);
                 continue;
             }
-            // check for online-only option
-            boolean onlineOnly;
-
-            // check for generator online only
-            if (generator.onlineOnly() == null) {
-                onlineOnly = Settings.ONLINE_ONLY;
-            } else {
-                onlineOnly = generator.onlineOnly();
-            }
-
-            if (onlineOnly) {
-                if (player == null || !player.isOnline()) {
-                    continue;
-                }
-            }
-            String serialized = LocationUtils.serialize(active.getLocation());
-            // check for corruption option
-            if (Settings.CORRUPTION_ENABLED && active.isCorrupted()) {
-                // check if hologram is enabled
-                if (Settings.CORRUPTION_HOLOGRAM && !this.hologramMap.containsKey(serialized)) {
-                    CorruptedHologram hologram = new CorruptedHologram(active);
-                    // show the hologram
-                    hologram.spawn();
-                    // store it on the cache
-                    this.hologramMap.put(serialized, hologram);
-                }
+            // online-only generators of offline owners are already off the wheel,
+            // this only catches owners that left since the snapshot
+            if (generator.isOnlineOnly() && !snapshot.isOnline(active.getOwner())) {
+                scheduler.park(active);
                 continue;
             }
-            // if the generator not corrupt but exists on the hologram map
-            CorruptedHologram hologram = this.hologramMap.remove(serialized);
-            if (!active.isCorrupted() && hologram != null) {
-                hologram.destroy();
+            // the tier and drop amount are compiled once per generator, world and event
+            GeneratorPlan plan = this.generatorManager.getPlanCache().getPlan(active);
+            Generator chosenGenerator = plan.chooseTier();
+            int dropAmount = plan.dropAmount();
+            // queue the drop, it will be spawned in the next batch on the main thread
+            if (!DropDispatchTask.submit(active, chosenGenerator, dropAmount)) {
+                scheduler.park(active);
             }
-            Generator chosenGenerator = generator;
-            double interval = generator.interval();
-            int dropAmount;
-            /**
-             * World multipliers code
-             */
-            double worldDiscount = NextGens.DEFAULT_CONFIG.getDouble("world-multipliers." + active.getLocation().getWorld().getName() + ".speed-multiplier");
-            if (worldDiscount > 0) {
-                double discount = (generator.interval() * worldDiscount) / 100;
-                // deduct the interval
-                interval -= discount;
-            }
-            /**
-             * Event-related code
-             */
-            if (event != null) {
-                if (event.getType() == Event.Type.GENERATOR_SPEED &&
-                        event.getSpeedMultiplier() != null &&
-                        !event.getBlacklistedGenerators().contains(generator.id())) {
-                    // get the speed boost
-                    Double boost = event.getSpeedMultiplier();
-                    double discount = (generator.interval() * boost) / 100;
-                    // deduct the interval
-                    interval = interval - discount;
-                }
-                if (event.getType() == Event.Type.GENERATOR_UPGRADE &&
-                        event.getTierUpgrade() != null &&
-                        !event.getBlacklistedGenerators().contains(generator.id())) {
-                    // get the amount of tier upgrade
-                    Integer amount = event.getTierUpgrade();
-                    // make a for-each and upgrade the generator
-                    for (int i = 0; i < amount; i++) {
-                        if (chosenGenerator.nextTier() == null) {
-                            break;
-                        }
-                        Generator upgraded = this.generatorManager.getGenerator(chosenGenerator.nextTier());
-                        if (upgraded != null) {
-                            chosenGenerator = upgraded;
-                        }
-                    }
-                }
-                if (event.getType() == Event.Type.MIXED_UP &&
-                        !event.getBlacklistedGenerators().contains(generator.id())) {
-                    // choose a random generator
-                    chosenGenerator = this.generatorManager.getRandomGenerator();
-                }
-                if (event.getType() == Event.Type.DROP_MULTIPLIER &&
-                        event.getDropMultiplier() != null &&
-                        !event.getBlacklistedGenerators().contains(generator.id())) {
-                    // get the drop multiplier and set the drop amount
-                    dropAmount = Math.max(1, event.getDropMultiplier());
-                } else {
-                    dropAmount = 1;
-                }
-            } else {
-                dropAmount = 1;
-            }
-            // add timer
-            active.addTimer(0.25);
-            // check if the generator should drop
-            if (active.getTimer() >= interval) {
-                // execute drop mechanics
-                Block block = active.getLocation().getBlock();
-                // execute it in sync task
-                Generator finalChosenGenerator = chosenGenerator;
-                Executor.sync(() -> {
-                    // set the block to the desired type
-                    if (Settings.FORCE_UPDATE_BLOCKS) {
-                        block.setType(generator.item().getType());
-                    }
-                    // Generate the random drop
-                    Drop drop = finalChosenGenerator.getRandomDrop();
-                    // create the event
-                    GeneratorGenerateItemEvent generatorEvent = new GeneratorGenerateItemEvent(finalChosenGenerator, active, drop, dropAmount);
-                    Bukkit.getPluginManager().callEvent(generatorEvent);
-                    if (generatorEvent.isCancelled()) {
-                        active.setTimer(0);
-                        return;
-                    }
-                    // Set the drop
-                    drop = generatorEvent.getDrop();
-                    // get the drop amount
-                    for (int i = 0; i < generatorEvent.getDropAmount(); i++) {
-                        if (drop == null)
-                            continue;
-
-                        // check if player has autosell
-                        if (player != null && Autosell.hasAutosellGensPermission(player) &&
-                                user.isToggleGensAutoSell()) {
-                            // check if item is sellable
-                            if (NextGens.getInstance().getSellManager().sell(player, drop.getItem())) {
-                                // spawn the random drop without dropping the item
-                                drop.spawn(block, Bukkit.getOfflinePlayer(active.getOwnerName()), false);
-                                continue;
-                            }
-                        }
-                        // spawn the random drop
-                        drop.spawn(block, Bukkit.getOfflinePlayer(active.getOwner()), generatorEvent.isDropItem());
-                    }
-                    // set the timer to 0
-                    active.setTimer(0);
-                });
+        }
+    }
 
+    private void accrue(GeneratorScheduler scheduler, WorldSnapshot snapshot, GeneratorScheduler.Accrual accrual) {
+        ActiveGenerator active = accrual.active();
+        // generators in blacklisted worlds don't work at all
+        if (active.getGenerator() == null || !snapshot.isWorkingWorld(active.getKey())) {
+            return;
+        }
+        // roll every owed cycle at once, the tier is chosen once for the whole batch
+        GeneratorPlan plan = this.generatorManager.getPlanCache().getPlan(active);
+        Generator chosenGenerator = plan.chooseTier();
+        List<DropSampler.Roll> drops = chosenGenerator.getRandomDrops(accrual.cycles());
+        if (drops.isEmpty()) {
+            return;
+        }
+        // queue the owed drops, they're delivered on the main thread
+        if (!DropDispatchTask.submitAccrual(accrual, chosenGenerator, drops, plan.dropAmount())) {
+            scheduler.defer(accrual);
+        }
+    }
+
+    private void updateHologram(GeneratorScheduler scheduler, ActiveGenerator active) {
+        BlockKey key = active.getKey();
+        // the generator could have been removed in the meantime
+        if (key == null || !scheduler.isScheduled(active)) {
+            return;
+        }
+        // check for corruption option
+        if (Settings.CORRUPTION_ENABLED && active.isCorrupted()) {
+            // check if hologram is enabled
+            if (Settings.CORRUPTION_HOLOGRAM && !this.hologramMap.containsKey(key)) {
+                CorruptedHologram hologram = new CorruptedHologram(active);
+                // show the hologram
+                hologram.spawn();
+                // store it on the cache
+                this.hologramMap.put(key, hologram);
             }
+            return;
+        }
+        // if the generator not corrupt but exists on the hologram map
+        CorruptedHologram hologram = this.hologramMap.remove(key);
+        if (hologram != null) {
+            hologram.destroy();
         }
     }
 
     public void forceRemoveHologram(ActiveGenerator active) {
-        CorruptedHologram removed = this.hologramMap.remove(LocationUtils.serialize(active.getLocation()));
+        if (active.getKey() == null) {
+            return;
+        }
+        CorruptedHologram removed = this.hologramMap.remove(active.getKey());
         // if hologram is present, remove it
         if (removed != null) {
             removed.destroy();
@@ -5,7 +5,6 @@ import com.muhammaddaffa.mdlib.utils.Config;
 import com.muhammaddaffa.mdlib.utils.Placeholder;
 import com.muhammaddaffa.mdlib.xseries.XSound;
 import com.muhammaddaffa.nextgens.NextGens;
-import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
 import com.muhammaddaffa.nextgens.utils.Settings;
 import org.bukkit.Bukkit;
@@ -13,7 +12,6 @@ import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -48,15 +46,8 @@ public class NotifyTask extends BukkitRunnable {
     }
 
     private Map<UUID, Integer> collectCorruptedGenerators() {
-        Map<UUID, Integer> corruptedCount = new HashMap<>();
-
-        for (ActiveGenerator generator : generatorManager.getActiveGenerator()) {
-            if (generator.isCorrupted()) {
-                corruptedCount.merge(generator.getOwner(), 1, Integer::sum);
-            }
-        }
-
-        return corruptedCount;
+        // scan the flags in the store instead of visiting every generator
+        return generatorManager.getStore().countCorrupted();
     }
 
     private void notifyPlayers(Map<UUID, Integer> corruptedGeneratorCount) {
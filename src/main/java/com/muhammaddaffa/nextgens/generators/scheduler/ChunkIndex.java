@@ -0,0 +1,145 @@
+package com.muhammaddaffa.nextgens.generators.scheduler;
+
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Groups active generators by the chunk they live in.
+ * <p>
+ * The index mirrors the loaded chunks through the chunk events, a whole bucket is moved
+ * in or out of the scheduler whenever its chunk loads or unloads. Generators in unloaded
+ * chunks keep their timer progress but are never handed to the generator task.
+ */
+public class ChunkIndex {
+
+    /**
+     * Pack the world and chunk coordinates into a single key.
+     * 16 bits of world id, and 24 bits for each chunk coordinate.
+     */
+    public static long pack(World world, int chunkX, int chunkZ) {
+        return pack(BlockKey.worldId(world.getName()), chunkX, chunkZ);
+    }
+
+    public static long pack(BlockKey key) {
+        return pack(key.world(), key.getChunkX(), key.getChunkZ());
+    }
+
+    private static long pack(int worldId, int chunkX, int chunkZ) {
+        return ((long) (worldId & 0xFFFF) << 48) | ((chunkX & 0xFFFFFFL) << 24) | (chunkZ & 0xFFFFFFL);
+    }
+
+    private final Map<Long, Set<ActiveGenerator>> buckets = new HashMap<>();
+    // concurrent, so the async tasks can check a chunk without the lock
+    private final Set<Long> loadedChunks = ConcurrentHashMap.newKeySet();
+
+    private final GeneratorScheduler scheduler;
+
+    public ChunkIndex(GeneratorScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Add the generator to its chunk bucket and start scheduling it.
+     * Generators without a valid world are scheduled but stay suspended.
+     */
+    public synchronized void add(ActiveGenerator active) {
+        BlockKey blockKey = active.getKey();
+        if (blockKey == null) {
+            this.scheduler.schedule(active, true);
+            return;
+        }
+        long key = pack(blockKey);
+        this.buckets.computeIfAbsent(key, k -> new HashSet<>()).add(active);
+        this.scheduler.schedule(active, !this.loadedChunks.contains(key));
+    }
+
+    /**
+     * Remove the generator from its chunk bucket and stop scheduling it.
+     */
+    public synchronized void remove(ActiveGenerator active) {
+        this.scheduler.unschedule(active);
+        BlockKey blockKey = active.getKey();
+        if (blockKey == null) {
+            return;
+        }
+        long key = pack(blockKey);
+        Set<ActiveGenerator> bucket = this.buckets.get(key);
+        if (bucket != null && bucket.remove(active) && bucket.isEmpty()) {
+            this.buckets.remove(key);
+        }
+    }
+
+    /**
+     * Remove every generator from its chunk bucket under a single lock.
+     */
+    public synchronized void removeAll(Collection<ActiveGenerator> generators) {
+        generators.forEach(this::remove);
+    }
+
+    public synchronized void load(Chunk chunk) {
+        long key = pack(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        if (!this.loadedChunks.add(key)) {
+            return;
+        }
+        Set<ActiveGenerator> bucket = this.buckets.get(key);
+        if (bucket != null) {
+            this.scheduler.resume(bucket);
+        }
+    }
+
+    public synchronized void unload(Chunk chunk) {
+        long key = pack(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        if (!this.loadedChunks.remove(key)) {
+            return;
+        }
+        Set<ActiveGenerator> bucket = this.buckets.get(key);
+        if (bucket != null) {
+            this.scheduler.suspend(bucket);
+        }
+    }
+
+    /**
+     * Mark every chunk of the world as unloaded, the chunk unload event is not
+     * guaranteed to be called for each chunk when a world unloads.
+     */
+    public synchronized void unload(World world) {
+        long worldBits = (long) (BlockKey.worldId(world.getName()) & 0xFFFF) << 48;
+        Iterator<Long> iterator = this.loadedChunks.iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.next();
+            if ((key & 0xFFFF000000000000L) != worldBits) {
+                continue;
+            }
+            iterator.remove();
+            Set<ActiveGenerator> bucket = this.buckets.get(key);
+            if (bucket != null) {
+                this.scheduler.suspend(bucket);
+            }
+        }
+    }
+
+    public boolean isLoaded(BlockKey key) {
+        return this.loadedChunks.contains(pack(key));
+    }
+
+    @NotNull
+    public synchronized List<ActiveGenerator> getGenerators(Chunk chunk) {
+        Set<ActiveGenerator> bucket = this.buckets.get(pack(chunk.getWorld(), chunk.getX(), chunk.getZ()));
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+
+    public synchronized Set<Long> copyLoadedChunks() {
+        return new HashSet<>(this.loadedChunks);
+    }
+
+    public synchronized int getLoadedChunks() {
+        return this.loadedChunks.size();
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.muhammaddaffa.nextgens.generators.scheduler;
+
+import com.muhammaddaffa.nextgens.objects.Generator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The effective behaviour of a generator type in a world under the active event.
+ *
+ * @param interval   the interval with the world multiplier and the speed event applied
+ * @param tier       the generator that is dropped, upgraded by the tier event
+ * @param dropAmount how many times the drop is generated
+ * @param mixedPool  generators to choose from on every drop, null unless the mixed up event applies
+ */
+public record GeneratorPlan(
+        double interval,
+        Generator tier,
+        int dropAmount,
+        Generator[] mixedPool
+) {
+
+    /**
+     * @return the generator that should be used for the next drop
+     */
+    public Generator chooseTier() {
+        if (this.mixedPool == null || this.mixedPool.length == 0) {
+            return this.tier;
+        }
+        return this.mixedPool[ThreadLocalRandom.current().nextInt(this.mixedPool.length)];
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.muhammaddaffa.nextgens.generators.scheduler;
+
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
+import com.muhammaddaffa.nextgens.managers.EventManager;
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+import com.muhammaddaffa.nextgens.objects.Event;
+import com.muhammaddaffa.nextgens.objects.Generator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compiled {@link GeneratorPlan} per (generator id, world) for the currently active event.
+ * <p>
+ * The whole table is thrown away whenever the configuration is reloaded or the active event
+ * changes, plans are compiled again lazily on the next lookup.
+ */
+public class GeneratorPlanCache {
+
+    private final GeneratorManager generatorManager;
+    private final EventManager eventManager;
+
+    private volatile Table table;
+
+    public GeneratorPlanCache(GeneratorManager generatorManager, EventManager eventManager) {
+        this.generatorManager = generatorManager;
+        this.eventManager = eventManager;
+        this.invalidate();
+    }
+
+    /**
+     * Drop every compiled plan, should be called after the configuration
+     * has been reloaded or the active event has been changed.
+     */
+    public void invalidate() {
+        Event event = this.eventManager.getActiveEvent();
+        GeneratorRegistry registry = this.generatorManager.getRegistry();
+        this.table = new Table(event, this.generatorManager.getGenerators().toArray(new Generator[0]),
+                registry.toBitSet(event == null ? null : event.getBlacklistedGenerators()), registry.size());
+    }
+
+    @NotNull
+    public GeneratorPlan getPlan(@NotNull ActiveGenerator active) {
+        BlockKey key = active.getKey();
+        return this.getPlan(active.getGenerator(), key == null ? -1 : key.world());
+    }
+
+    @NotNull
+    public GeneratorPlan getPlan(@NotNull Generator generator, @Nullable String world) {
+        return this.getPlan(generator, world == null ? -1 : BlockKey.worldId(world));
+    }
+
+    /**
+     * @param world the interned world id, or -1 if the world is unknown
+     */
+    @NotNull
+    public GeneratorPlan getPlan(@NotNull Generator generator, int world) {
+        Table table = this.table;
+        int type = this.generatorManager.getRegistry().indexOf(generator.id());
+        // generators that were interned after the table was built aren't cached
+        if (type < 0 || type >= table.plans.length()) {
+            return this.compile(table, generator, world);
+        }
+        int column = world + 1;
+        GeneratorPlan[] row = table.plans.get(type);
+        if (row != null && column < row.length && row[column] != null) {
+            return row[column];
+        }
+        GeneratorPlan plan = this.compile(table, generator, world);
+        // the rows are never modified, a lost race only costs another compile
+        GeneratorPlan[] grown = row == null ? new GeneratorPlan[Math.max(4, column + 1)] :
+                Arrays.copyOf(row, Math.max(row.length, column + 1));
+        grown[column] = plan;
+        table.plans.compareAndSet(type, row, grown);
+        return plan;
+    }
+
+    private GeneratorPlan compile(Table table, Generator generator, int worldId) {
+        String world = worldId < 0 ? null : BlockKey.worldName(worldId);
+        double interval = generator.interval();
+        Generator tier = generator;
+        int dropAmount = 1;
+        Generator[] mixedPool = null;
+        /**
+         * World multipliers code
+         */
+        if (world != null) {
+            double worldDiscount = NextGens.DEFAULT_CONFIG.getDouble("world-multipliers." + world + ".speed-multiplier");
+            if (worldDiscount > 0) {
+                // deduct the interval
+                interval -= (generator.interval() * worldDiscount) / 100;
+            }
+        }
+        /**
+         * Event-related code
+         */
+        Event event = table.event;
+        int type = this.generatorManager.getRegistry().indexOf(generator.id());
+        if (event != null && (type < 0 ? !event.getBlacklistedGenerators().contains(generator.id()) :
+                !table.blacklisted.get(type))) {
+            if (event.getType() == Event.Type.GENERATOR_SPEED && event.getSpeedMultiplier() != null) {
+                // deduct the interval
+                interval -= (generator.interval() * event.getSpeedMultiplier()) / 100;
+            }
+            if (event.getType() == Event.Type.GENERATOR_UPGRADE && event.getTierUpgrade() != null) {
+                // walk the tier chain once
+                for (int i = 0; i < event.getTierUpgrade(); i++) {
+                    if (tier.nextTier() == null) {
+                        break;
+                    }
+                    Generator upgraded = this.generatorManager.getGenerator(tier.nextTier());
+                    if (upgraded != null) {
+                        tier = upgraded;
+                    }
+                }
+            }
+            if (event.getType() == Event.Type.MIXED_UP && table.generators.length > 0) {
+                mixedPool = table.generators;
+            }
+            if (event.getType() == Event.Type.DROP_MULTIPLIER && event.getDropMultiplier() != null) {
+                dropAmount = Math.max(1, event.getDropMultiplier());
+            }
+        }
+        return new GeneratorPlan(interval, tier, dropAmount, mixedPool);
+    }
+
+    private static final class Table {
+
+        private final Event event;
+        private final Generator[] generators;
+        // interned ids of the generators the event doesn't apply to
+        private final BitSet blacklisted;
+        // generator type -> world id + 1 -> plan
+        private final AtomicReferenceArray<GeneratorPlan[]> plans;
+
+        private Table(Event event, Generator[] generators, BitSet blacklisted, int types) {
+            this.event = event;
+            this.generators = generators;
+            this.blacklisted = blacklisted;
+            this.plans = new AtomicReferenceArray<>(types);
+        }
+
+    }
+
+}
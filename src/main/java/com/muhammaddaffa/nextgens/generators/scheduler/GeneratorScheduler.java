@@ -0,0 +1,469 @@
+package com.muhammaddaffa.nextgens.generators.scheduler;
+
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.Generator;
+import com.muhammaddaffa.nextgens.utils.Settings;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps every tickable generator on a timer wheel keyed by its absolute next-drop tick,
+ * so the generator task only has to touch the generators that are actually due.
+ */
+public class GeneratorScheduler {
+
+    /**
+     * How many seconds a single scheduler tick represents, the generator task runs every 5 ticks.
+     */
+    public static final double TICK_SECONDS = 0.25;
+
+    private final TimerWheel<Slot> wheel = new TimerWheel<>(1024);
+    private final Queue<ActiveGenerator> hologramUpdates = new ConcurrentLinkedQueue<>();
+    private final Queue<Accrual> accruals = new ConcurrentLinkedQueue<>();
+    // online-only generators of owners that aren't in here are kept off the wheel
+    private final Set<UUID> onlineOwners = new HashSet<>();
+    // the tick of the wheel, readable without the lock
+    private volatile long currentTick;
+
+    private final GeneratorPlanCache planCache;
+
+    public GeneratorScheduler(GeneratorPlanCache planCache) {
+        this.planCache = planCache;
+    }
+
+    /**
+     * Start managing the generator, its current timer is used as the starting progress.
+     */
+    public void schedule(ActiveGenerator active) {
+        this.schedule(active, false);
+    }
+
+    /**
+     * Start managing the generator, suspended generators keep their timer
+     * until they're resumed, e.g. when their chunk is loaded.
+     */
+    public void schedule(ActiveGenerator active, boolean suspended) {
+        synchronized (this) {
+            Slot slot = active.getSlot();
+            if (slot != null && slot.scheduler == this) {
+                this.disarm(slot);
+                slot.suspended = suspended;
+                this.arm(slot);
+                return;
+            }
+            slot = new Slot(this, active, active.getTimer(), active.getIdleTime());
+            slot.suspended = suspended;
+            active.setSlot(slot);
+            this.arm(slot);
+        }
+        // corrupted generators need their hologram
+        if (active.isCorrupted()) {
+            this.hologramUpdates.add(active);
+        }
+    }
+
+    /**
+     * Stop managing the generator, the timer progress and the owed idle time are written back to the generator.
+     */
+    public synchronized void unschedule(ActiveGenerator active) {
+        Slot slot = active.getSlot();
+        if (slot == null || slot.scheduler != this) {
+            return;
+        }
+        this.disarm(slot);
+        active.setSlot(null);
+        active.setTimer(slot.timer);
+        active.setIdleTime(this.currentIdle(slot));
+    }
+
+    /**
+     * Take the generators off the wheel while keeping their timer progress.
+     */
+    public synchronized void suspend(Collection<ActiveGenerator> generators) {
+        for (ActiveGenerator active : generators) {
+            Slot slot = active.getSlot();
+            if (slot == null || slot.scheduler != this || slot.suspended) {
+                continue;
+            }
+            this.disarm(slot);
+            slot.suspended = true;
+            this.updateIdle(slot);
+        }
+    }
+
+    /**
+     * Put suspended generators back on the wheel.
+     */
+    public synchronized void resume(Collection<ActiveGenerator> generators) {
+        for (ActiveGenerator active : generators) {
+            Slot slot = active.getSlot();
+            if (slot == null || slot.scheduler != this || !slot.suspended) {
+                continue;
+            }
+            slot.suspended = false;
+            this.arm(slot);
+        }
+    }
+
+    /**
+     * Move the generators of the owner between the online and offline partition,
+     * online-only generators of offline owners are kept off the wheel with their timer frozen.
+     *
+     * @param generators the generators owned by the owner
+     */
+    public synchronized void setOnline(UUID owner, boolean online, Collection<ActiveGenerator> generators) {
+        boolean changed = online ? this.onlineOwners.add(owner) : this.onlineOwners.remove(owner);
+        if (!changed) {
+            return;
+        }
+        for (ActiveGenerator active : generators) {
+            Slot slot = active.getSlot();
+            if (slot == null || slot.scheduler != this) {
+                continue;
+            }
+            if (online) {
+                // pay out the time that has been owed while the owner was away
+                if (slot.idleSeconds > 0) {
+                    this.disarm(slot);
+                }
+                this.arm(slot);
+                continue;
+            }
+            if (!this.isTickable(slot)) {
+                this.disarm(slot);
+            }
+            // online-only generators stop accruing while their owner is away
+            this.updateIdle(slot);
+        }
+    }
+
+    /**
+     * Recalculate the next-drop tick of the generator while keeping its progress,
+     * should be called whenever the effective interval might have changed.
+     */
+    public synchronized void reschedule(ActiveGenerator active) {
+        Slot slot = active.getSlot();
+        if (slot == null || slot.scheduler != this) {
+            return;
+        }
+        this.disarm(slot);
+        this.arm(slot);
+    }
+
+    /**
+     * Recalculate every generator, used when a global modifier such as an event or the config changes.
+     */
+    public void rescheduleAll(Collection<ActiveGenerator> generators) {
+        synchronized (this) {
+            for (ActiveGenerator active : generators) {
+                this.reschedule(active);
+            }
+        }
+        // the holograms might have been flushed or the corruption toggled
+        for (ActiveGenerator active : generators) {
+            if (active.isCorrupted()) {
+                this.hologramUpdates.add(active);
+            }
+        }
+    }
+
+    /**
+     * Called when the corruption state of the generator has been changed.
+     */
+    public void updateCorruption(ActiveGenerator active) {
+        this.reschedule(active);
+        this.hologramUpdates.add(active);
+    }
+
+    /**
+     * Move the scheduler one tick forward.
+     *
+     * @return generators that are due to drop, they will not be scheduled again
+     * until their timer is reset or they get parked
+     */
+    public synchronized List<ActiveGenerator> advance() {
+        List<ActiveGenerator> due = new ArrayList<>();
+        this.wheel.advance(slot -> {
+            // freeze the timer at the moment it's due
+            slot.timer = this.currentTimer(slot);
+            slot.timeout = null;
+            slot.publish();
+            due.add(slot.active);
+        });
+        this.currentTick = this.wheel.getTick();
+        return due;
+    }
+
+    /**
+     * Put a due generator that couldn't drop back on the wheel so it's checked again on the next tick.
+     * The timer stays at its full progress.
+     */
+    public synchronized void park(ActiveGenerator active) {
+        Slot slot = active.getSlot();
+        if (slot == null || slot.scheduler != this || slot.timeout != null || !this.isTickable(slot)) {
+            return;
+        }
+        slot.timerTick = this.wheel.getTick();
+        slot.timeout = this.wheel.schedule(slot, this.wheel.getTick() + 1);
+        slot.publish();
+    }
+
+    /**
+     * Give the owed time back to the generator, e.g. when its owner left before the drops were delivered.
+     * It's paid out again once the owner is back.
+     */
+    public synchronized void defer(Accrual accrual) {
+        ActiveGenerator active = accrual.active();
+        Slot slot = active.getSlot();
+        if (slot == null || slot.scheduler != this) {
+            active.setIdleTime(active.getIdleTime() + accrual.seconds());
+            return;
+        }
+        slot.idleSeconds += accrual.seconds();
+        slot.publish();
+    }
+
+    public ActiveGenerator pollHologramUpdate() {
+        return this.hologramUpdates.poll();
+    }
+
+    /**
+     * @return the next batch of drop cycles owed to a generator that came back from an unloaded chunk
+     */
+    public Accrual pollAccrual() {
+        return this.accruals.poll();
+    }
+
+    public synchronized boolean isScheduled(ActiveGenerator active) {
+        Slot slot = active.getSlot();
+        return slot != null && slot.scheduler == this;
+    }
+
+    public synchronized long getTick() {
+        return this.wheel.getTick();
+    }
+
+    public synchronized int size() {
+        return this.wheel.size();
+    }
+
+    /**
+     * Get the interval of the generator with the world multiplier and the active event applied.
+     */
+    public double getInterval(ActiveGenerator active) {
+        return this.planCache.getPlan(active).interval();
+    }
+
+    private boolean isTickable(Slot slot) {
+        ActiveGenerator active = slot.active;
+        Generator generator = active.getGenerator();
+        if (slot.suspended || generator == null || (Settings.CORRUPTION_ENABLED && active.isCorrupted())) {
+            return false;
+        }
+        // offline partition
+        return !generator.isOnlineOnly() || this.onlineOwners.contains(active.getOwner());
+    }
+
+    /**
+     * @return true if the generator would be working if only its chunk was loaded
+     */
+    private boolean isAccruing(Slot slot) {
+        ActiveGenerator active = slot.active;
+        Generator generator = active.getGenerator();
+        if (!Settings.OFFLINE_ACCRUAL || !slot.suspended || generator == null ||
+                (Settings.CORRUPTION_ENABLED && active.isCorrupted())) {
+            return false;
+        }
+        return !generator.isOnlineOnly() || this.onlineOwners.contains(active.getOwner());
+    }
+
+    /**
+     * Start or stop the idle clock of the generator, the idle time is banked until the generator is armed again.
+     */
+    private void updateIdle(Slot slot) {
+        boolean accruing = this.isAccruing(slot);
+        if (accruing && slot.idleSince == 0) {
+            slot.idleSince = System.currentTimeMillis();
+            slot.publish();
+        } else if (!accruing && slot.idleSince != 0) {
+            slot.idleSeconds += (System.currentTimeMillis() - slot.idleSince) / 1000.0;
+            slot.idleSince = 0;
+            slot.publish();
+        }
+    }
+
+    /**
+     * @return the banked idle time with the time the generator has been idle since it was banked last
+     */
+    private double currentIdle(Slot slot) {
+        if (slot.idleSince == 0) {
+            return slot.idleSeconds;
+        }
+        return slot.idleSeconds + (System.currentTimeMillis() - slot.idleSince) / 1000.0;
+    }
+
+    /**
+     * Turn the banked idle time into owed drop cycles, the rest of the idle time is kept as timer progress.
+     */
+    private void catchUp(Slot slot) {
+        double idle = Math.min(slot.idleSeconds, Settings.OFFLINE_ACCRUAL_MAX_SECONDS);
+        slot.idleSeconds = 0;
+        if (!Settings.OFFLINE_ACCRUAL || idle <= 0 || slot.interval <= 0) {
+            return;
+        }
+        double progress = slot.timer + idle;
+        long cycles = (long) (progress / slot.interval);
+        slot.timer = progress - (cycles * slot.interval);
+        if (cycles > 0) {
+            this.accruals.add(new Accrual(slot.active, cycles, cycles * slot.interval));
+        }
+    }
+
+    private void arm(Slot slot) {
+        this.updateIdle(slot);
+        if (slot.timeout != null || !this.isTickable(slot)) {
+            slot.publish();
+            return;
+        }
+        long tick = this.wheel.getTick();
+        slot.interval = this.getInterval(slot.active);
+        slot.timerTick = tick;
+        // pay out the time the generator spent in an unloaded chunk, the owed time
+        // of offline owners stays banked until they're back
+        if (slot.idleSeconds > 0 && this.onlineOwners.contains(slot.active.getOwner())) {
+            this.catchUp(slot);
+        }
+        // how many ticks left until the timer reaches the interval
+        long remaining = (long) Math.ceil((slot.interval - slot.timer) / TICK_SECONDS);
+        slot.timeout = this.wheel.schedule(slot, tick + Math.max(1, remaining));
+        slot.publish();
+    }
+
+    private void disarm(Slot slot) {
+        if (slot.timeout == null) {
+            return;
+        }
+        slot.timer = this.currentTimer(slot);
+        this.wheel.cancel(slot.timeout);
+        slot.timeout = null;
+        slot.publish();
+    }
+
+    private double currentTimer(Slot slot) {
+        if (slot.timeout == null) {
+            return slot.timer;
+        }
+        double elapsed = (this.wheel.getTick() - slot.timerTick) * TICK_SECONDS;
+        return Math.min(slot.interval, slot.timer + elapsed);
+    }
+
+    private synchronized double getTimer(Slot slot) {
+        return this.currentTimer(slot);
+    }
+
+    private synchronized double getIdle(Slot slot) {
+        return this.currentIdle(slot);
+    }
+
+    private synchronized void setIdle(Slot slot, double idle) {
+        slot.idleSeconds = idle;
+        // the idle clock keeps running from now on
+        if (slot.idleSince != 0) {
+            slot.idleSince = System.currentTimeMillis();
+        }
+        slot.publish();
+    }
+
+    private synchronized void setTimer(Slot slot, double timer) {
+        this.disarm(slot);
+        slot.timer = timer;
+        this.arm(slot);
+    }
+
+    /**
+     * The scheduling state of a single generator.
+     */
+    public static final class Slot {
+
+        private final GeneratorScheduler scheduler;
+        private final ActiveGenerator active;
+
+        private TimerWheel.Node<Slot> timeout;
+        private double timer;
+        private long timerTick;
+        private double interval;
+        private boolean suspended;
+        // the moment the generator started accruing, 0 if it's not accruing
+        private long idleSince;
+        private double idleSeconds;
+
+        private Slot(GeneratorScheduler scheduler, ActiveGenerator active, double timer, double idleSeconds) {
+            this.scheduler = scheduler;
+            this.active = active;
+            this.timer = timer;
+            this.idleSeconds = idleSeconds;
+            this.publish();
+        }
+
+        public double getTimer() {
+            return this.scheduler.getTimer(this);
+        }
+
+        /**
+         * @return the tick of the scheduler, readable without the scheduler lock
+         */
+        public long getCurrentTick() {
+            return this.scheduler.currentTick;
+        }
+
+        /**
+         * @return the idle time that is owed to the generator, it's paid out once the generator works again
+         */
+        public double getIdleTime() {
+            return this.scheduler.getIdle(this);
+        }
+
+        // called under the scheduler lock whenever the timer, the timeout or the idle time changes,
+        // the row of the generator keeps the progress so it can be read without the scheduler lock
+        private void publish() {
+            this.active.publishProgress(this.timer, this.timerTick, this.interval, this.timeout != null,
+                    this.idleSince, this.idleSeconds);
+        }
+
+        public boolean isSuspended() {
+            synchronized (this.scheduler) {
+                return this.suspended;
+            }
+        }
+
+        public void setTimer(double timer) {
+            this.scheduler.setTimer(this, timer);
+        }
+
+        public void setIdleTime(double idle) {
+            this.scheduler.setIdle(this, idle);
+        }
+
+        public void reschedule() {
+            this.scheduler.reschedule(this.active);
+        }
+
+        public void updateCorruption() {
+            this.scheduler.updateCorruption(this.active);
+        }
+
+    }
+
+    /**
+     * Drop cycles owed to a generator for the time it spent in an unloaded chunk.
+     *
+     * @param seconds the idle time the cycles have been paid with
+     */
+    public record Accrual(
+            ActiveGenerator active,
+            long cycles,
+            double seconds
+    ) {}
+
+}
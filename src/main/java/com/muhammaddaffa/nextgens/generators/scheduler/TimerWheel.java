@@ -0,0 +1,128 @@
+package com.muhammaddaffa.nextgens.generators.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel keyed by absolute deadline ticks.
+ * <p>
+ * Every entry lives in the bucket of its deadline, so advancing the wheel by one tick
+ * only visits the entries that share that bucket. Entries whose deadline is more than
+ * one revolution away simply stay in their bucket until their round comes.
+ * <p>
+ * This class is not thread-safe, callers are expected to guard it.
+ */
+public class TimerWheel<T> {
+
+    private final Node<T>[] buckets;
+    private final int mask;
+
+    private long tick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(int wheelSize) {
+        // round the wheel size up to a power of two
+        int capacity = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.buckets = new Node[capacity];
+        this.mask = capacity - 1;
+        // every bucket has a sentinel node to make unlinking branch free
+        for (int i = 0; i < capacity; i++) {
+            Node<T> sentinel = new Node<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            this.buckets[i] = sentinel;
+        }
+    }
+
+    /**
+     * Schedule the value to expire at the given absolute tick.
+     * Deadlines that are already in the past will expire on the next tick.
+     */
+    public Node<T> schedule(T value, long deadline) {
+        Node<T> node = new Node<>(value);
+        node.deadline = Math.max(deadline, this.tick + 1);
+        // link it at the tail of the bucket
+        Node<T> sentinel = this.buckets[(int) (node.deadline & this.mask)];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+
+        this.size++;
+        return node;
+    }
+
+    /**
+     * Remove the node from the wheel, does nothing if it already expired or got cancelled.
+     */
+    public void cancel(Node<T> node) {
+        if (node == null || !node.isScheduled()) {
+            return;
+        }
+        this.unlink(node);
+    }
+
+    /**
+     * Move the wheel one tick forward and hand every expired value to the consumer.
+     * The consumer is free to schedule or cancel other nodes.
+     */
+    public void advance(Consumer<T> expired) {
+        this.tick++;
+        Node<T> sentinel = this.buckets[(int) (this.tick & this.mask)];
+        // unlink the expired nodes first, so the consumer can't break the iteration
+        List<T> values = new ArrayList<>();
+        Node<T> node = sentinel.next;
+        while (node != sentinel) {
+            Node<T> next = node.next;
+            if (node.deadline <= this.tick) {
+                this.unlink(node);
+                values.add(node.value);
+            }
+            node = next;
+        }
+        values.forEach(expired);
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void unlink(Node<T> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        this.size--;
+    }
+
+    public static final class Node<T> {
+
+        private final T value;
+        private long deadline;
+        private Node<T> prev, next;
+
+        private Node(T value) {
+            this.value = value;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isScheduled() {
+            return this.next != null;
+        }
+
+    }
+
+}
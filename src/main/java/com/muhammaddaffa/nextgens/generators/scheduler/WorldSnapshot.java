@@ -0,0 +1,129 @@
+package com.muhammaddaffa.nextgens.generators.scheduler;
+
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Immutable view of the server state that the async generator tasks need, the async tasks must only read
+ * this snapshot instead of calling into Bukkit.
+ * <p>
+ * It's captured once, and a new copy is published by the join, quit and world events whenever
+ * the online players or the worlds change. The loaded chunks are read from the chunk index,
+ * which is kept up to date by the chunk events.
+ */
+public final class WorldSnapshot {
+
+    private static volatile WorldSnapshot current;
+
+    /**
+     * Capture the whole state, must be called on the main thread.
+     */
+    public static synchronized WorldSnapshot capture(ChunkIndex chunkIndex) {
+        Set<UUID> online = new HashSet<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            online.add(player.getUniqueId());
+        }
+        WorldSnapshot snapshot = new WorldSnapshot(Collections.unmodifiableSet(online), chunkIndex, captureWorlds(null));
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Publish a copy with the player added or removed, does nothing until the snapshot has been captured.
+     */
+    public static synchronized void setOnline(UUID uuid, boolean online) {
+        WorldSnapshot snapshot = current;
+        if (snapshot == null || snapshot.onlinePlayers.contains(uuid) == online) {
+            return;
+        }
+        Set<UUID> players = new HashSet<>(snapshot.onlinePlayers);
+        if (online) {
+            players.add(uuid);
+        } else {
+            players.remove(uuid);
+        }
+        current = new WorldSnapshot(Collections.unmodifiableSet(players), snapshot.chunkIndex, snapshot.worlds);
+    }
+
+    /**
+     * Publish a copy with the current worlds and blacklist, must be called on the main thread.
+     *
+     * @param unloading the world that is being unloaded, it's still in the world list during its event
+     */
+    public static synchronized void refreshWorlds(@Nullable World unloading) {
+        WorldSnapshot snapshot = current;
+        if (snapshot == null) {
+            return;
+        }
+        current = new WorldSnapshot(snapshot.onlinePlayers, snapshot.chunkIndex, captureWorlds(unloading));
+    }
+
+    /**
+     * @return the latest captured snapshot, or null if nothing has been captured yet
+     */
+    @Nullable
+    public static WorldSnapshot current() {
+        return current;
+    }
+
+    private static Map<Integer, WorldSettings> captureWorlds(@Nullable World unloading) {
+        Map<Integer, WorldSettings> worlds = new HashMap<>();
+        for (World world : Bukkit.getWorlds()) {
+            if (world.equals(unloading)) {
+                continue;
+            }
+            String name = world.getName();
+            worlds.put(BlockKey.worldId(name), new WorldSettings(name, Settings.BLACKLISTED_WORLDS.contains(name)));
+        }
+        return Collections.unmodifiableMap(worlds);
+    }
+
+    private final Set<UUID> onlinePlayers;
+    private final ChunkIndex chunkIndex;
+    private final Map<Integer, WorldSettings> worlds;
+
+    private WorldSnapshot(Set<UUID> onlinePlayers, ChunkIndex chunkIndex, Map<Integer, WorldSettings> worlds) {
+        this.onlinePlayers = onlinePlayers;
+        this.chunkIndex = chunkIndex;
+        this.worlds = worlds;
+    }
+
+    public boolean isOnline(UUID uuid) {
+        return this.onlinePlayers.contains(uuid);
+    }
+
+    public Set<UUID> getOnlinePlayers() {
+        return onlinePlayers;
+    }
+
+    public boolean isChunkLoaded(@Nullable BlockKey key) {
+        return key != null && this.chunkIndex.isLoaded(key);
+    }
+
+    /**
+     * @return true if the world of the block is loaded and generators are allowed to work there
+     */
+    public boolean isWorkingWorld(@Nullable BlockKey key) {
+        if (key == null) {
+            return false;
+        }
+        WorldSettings settings = this.worlds.get(key.world());
+        return settings != null && !settings.blacklisted();
+    }
+
+    public Collection<WorldSettings> getWorlds() {
+        return worlds.values();
+    }
+
+    public record WorldSettings(
+            String name,
+            boolean blacklisted
+    ) {}
+
+}
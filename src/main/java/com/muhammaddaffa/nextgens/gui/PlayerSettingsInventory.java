@@ -80,6 +80,8 @@ public class PlayerSettingsInventory extends FastInv {
                         this.playFailedSound();
                     }
                 }
+                // queue the changed settings
+                NextGens.getInstance().getUserSaveQueue().markDirty(user);
                 // update the item
                 this.setAllItems();
             });
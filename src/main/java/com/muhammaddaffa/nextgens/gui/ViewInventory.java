@@ -51,10 +51,9 @@ public class ViewInventory extends FastInv {
 
     private void setAllItems() {
         FileConfiguration config = NextGens.VIEW_GUI_CONFIG.getConfig();
-        List<ActiveGenerator> generators = this.generatorManager.getActiveGenerator(user.getUniqueId());
         List<Integer> slots = config.getIntegerList("slots");
         if (this.pagination == null) {
-            this.pagination = new ViewPagination(generators, slots);
+            this.pagination = new ViewPagination(this.generatorManager.getActiveGenerator(user.getUniqueId()), slots);
         }
 
         // clear the inventory first
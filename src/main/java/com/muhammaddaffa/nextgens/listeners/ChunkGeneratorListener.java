@@ -1 +1,52 @@
- 
\ No newline at end of file
+package com.muhammaddaffa.nextgens.listeners;
+
+import com.muhammaddaffa.nextgens.generators.scheduler.ChunkIndex;
+import com.muhammaddaffa.nextgens.generators.scheduler.WorldSnapshot;
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+public class ChunkGeneratorListener implements Listener {
+
+    private final ChunkIndex chunkIndex;
+
+    public ChunkGeneratorListener(GeneratorManager generatorManager) {
+        this.chunkIndex = generatorManager.getChunkIndex();
+        // chunks that are already loaded won't fire the load event
+        for (World world : Bukkit.getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                this.chunkIndex.load(chunk);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onChunkLoad(ChunkLoadEvent event) {
+        this.chunkIndex.load(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onChunkUnload(ChunkUnloadEvent event) {
+        this.chunkIndex.unload(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onWorldLoad(WorldLoadEvent event) {
+        WorldSnapshot.refreshWorlds(null);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onWorldUnload(WorldUnloadEvent event) {
+        this.chunkIndex.unload(event.getWorld());
+        WorldSnapshot.refreshWorlds(event.getWorld());
+    }
+
+}
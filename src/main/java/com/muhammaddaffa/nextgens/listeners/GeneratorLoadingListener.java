@@ -0,0 +1,32 @@
+package com.muhammaddaffa.nextgens.listeners;
+
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+
+/**
+ * Until the active generators are loaded a broken block could be a generator that isn't known yet,
+ * so breaking blocks and placing generators waits until the generators of that area are ready.
+ */
+public record GeneratorLoadingListener(
+        GeneratorManager generatorManager
+) implements Listener {
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    private void onBreak(BlockBreakEvent event) {
+        if (!this.generatorManager.isReady(event.getBlock())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    private void onPlace(BlockPlaceEvent event) {
+        if (!this.generatorManager.isReady(event.getBlock()) && this.generatorManager.getGenerator(event.getItemInHand()) != null) {
+            event.setCancelled(true);
+        }
+    }
+
+}
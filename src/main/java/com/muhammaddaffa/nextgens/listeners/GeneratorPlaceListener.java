@@ -6,7 +6,6 @@ import com.muhammaddaffa.mdlib.utils.Placeholder;
 import com.muhammaddaffa.mdlib.xseries.particles.XParticle;
 import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.api.events.generators.GeneratorPlaceEvent;
-import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
 import com.muhammaddaffa.nextgens.objects.Generator;
 import com.muhammaddaffa.nextgens.generators.listeners.helpers.GeneratorParticle;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
@@ -118,11 +117,7 @@ public record GeneratorPlaceListener(
         if (!config.getBoolean("generator-place-distance.enabled")) return false;
 
         double distance = config.getInt("generator-place-distance.distance");
-        for (ActiveGenerator active : this.generatorManager.getActiveGenerator()) {
-            if (!active.getLocation().getWorld().equals(block.getWorld())) continue;
-            if (active.getLocation().distance(block.getLocation()) < distance) return true;
-        }
-        return false;
+        return this.generatorManager.isNearGenerator(block, distance);
     }
 
     private void notifyTooClose(Player player, BlockPlaceEvent event) {
@@ -0,0 +1,37 @@
+package com.muhammaddaffa.nextgens.listeners;
+
+import com.muhammaddaffa.nextgens.generators.scheduler.WorldSnapshot;
+import com.muhammaddaffa.nextgens.managers.GeneratorManager;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public class GeneratorPresenceListener implements Listener {
+
+    private final GeneratorManager generatorManager;
+
+    public GeneratorPresenceListener(GeneratorManager generatorManager) {
+        this.generatorManager = generatorManager;
+        // players that are already online won't fire the join event
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            this.generatorManager.setOwnerOnline(player.getUniqueId(), true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onJoin(PlayerJoinEvent event) {
+        this.generatorManager.setOwnerOnline(event.getPlayer().getUniqueId(), true);
+        WorldSnapshot.setOnline(event.getPlayer().getUniqueId(), true);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        this.generatorManager.setOwnerOnline(event.getPlayer().getUniqueId(), false);
+        WorldSnapshot.setOnline(event.getPlayer().getUniqueId(), false);
+    }
+
+}
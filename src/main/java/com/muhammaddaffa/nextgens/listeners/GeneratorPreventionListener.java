@@ -20,6 +20,7 @@ import org.bukkit.inventory.ItemStack;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 
 public record GeneratorPreventionListener(
@@ -143,12 +144,15 @@ public record GeneratorPreventionListener(
             blocks.removeIf(block -> this.generatorManager.getActiveGenerator(block) != null);
         } else {
             // if option is disabled, unregister active generator
+            List<ActiveGenerator> exploded = new ArrayList<>();
             for (Block block : blocks) {
                 ActiveGenerator active = this.generatorManager.getActiveGenerator(block);
                 if (active != null) {
-                    this.generatorManager.unregisterGenerator(active.getLocation());
+                    exploded.add(active);
                 }
             }
+            // the explosion breaks the blocks itself
+            this.generatorManager.unregisterGenerators(exploded, false);
         }
     }
 
@@ -17,13 +17,14 @@ import com.muhammaddaffa.nextgens.objects.Generator;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
 import com.muhammaddaffa.nextgens.managers.RefundManager;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public record LuckySkyblockListener(GeneratorManager generatorManager, RefundManager refundManager) implements Listener {
 
@@ -64,19 +65,19 @@ public record LuckySkyblockListener(GeneratorManager generatorManager, RefundMan
 
     private void check(RemotePlayer remotePlayer) {
         List<ActiveGenerator> generators = this.generatorManager.getActiveGenerator(remotePlayer.getUniqueId());
+        // unregister them together, the blocks are set to air over the next ticks
+        List<ActiveGenerator> removed = this.generatorManager.unregisterGenerators(generators, true);
+        // the refunds of an offline player are stored together
+        Map<String, Integer> refunds = new HashMap<>();
         // loop through them all
-        for (ActiveGenerator active : generators) {
+        for (ActiveGenerator active : removed) {
             Generator generator = active.getGenerator();
-            // unregister the generator
-            this.generatorManager.unregisterGenerator(active.getLocation());
-            // set the block to air
-            active.getLocation().getBlock().setType(Material.AIR);
             // check for island pickup option
             if (NextGens.DEFAULT_CONFIG.getConfig().getBoolean("island-pickup")) {
                 // give the generator back
                 if (player == null) {
                     // if player not online, register it to item join
-                    this.refundManager.delayedGiveGeneratorItem(remotePlayer.getUniqueId(), generator.id());
+                    refunds.merge(generator.id(), 1, Integer::sum);
                 } else {
                     // if player is online, give them the generators
                     Executor.sync(() -> Common.addInventoryItem(player, generator.createItem(1)));
@@ -84,6 +85,7 @@ public record LuckySkyblockListener(GeneratorManager generatorManager, RefundMan
             }
 
         }
+        this.refundManager.delayedGiveGeneratorItem(remotePlayer.getUniqueId(), refunds);
     }
 
 }
@@ -0,0 +1,44 @@
+package com.muhammaddaffa.nextgens.listeners;
+
+import com.muhammaddaffa.mdlib.utils.Common;
+import com.muhammaddaffa.mdlib.utils.Logger;
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.managers.UserManager;
+import com.muhammaddaffa.nextgens.objects.User;
+import com.muhammaddaffa.nextgens.users.UserRepository;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+public record UserLoadListener(
+        UserRepository userRepository,
+        UserManager userManager
+) implements Listener {
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    private void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID uuid = event.getUniqueId();
+        // the user is still cached from an earlier session, it might have unsaved changes
+        if (this.userManager.isLoaded(uuid)) {
+            return;
+        }
+        try {
+            User user = this.userRepository.loadUser(uuid);
+            this.userManager.cacheUser(user == null ? new User(uuid) : user);
+        } catch (SQLException ex) {
+            Logger.severe("Failed to load the data of " + event.getName() + "!");
+            ex.printStackTrace();
+            // letting the player in would overwrite the stored data with empty data
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    Common.color(NextGens.DEFAULT_CONFIG.getConfig().getString("messages.user-load-failed")));
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.muhammaddaffa.nextgens.listeners;
+
+import com.muhammaddaffa.mdlib.utils.Executor;
+import com.muhammaddaffa.nextgens.users.UserSaveQueue;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.UUID;
+
+public class UserSaveListener implements Listener {
+
+    private final UserSaveQueue userSaveQueue;
+
+    public UserSaveListener(UserSaveQueue userSaveQueue) {
+        this.userSaveQueue = userSaveQueue;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        // don't wait for the next flush, the player might join another server
+        Executor.async(() -> this.userSaveQueue.flush(uuid));
+    }
+
+}
@@ -3,25 +3,42 @@ package com.muhammaddaffa.nextgens.managers;
 import com.muhammaddaffa.mdlib.utils.LocationUtils;
 import com.muhammaddaffa.mdlib.utils.Logger;
 import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
 import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+import com.muhammaddaffa.nextgens.objects.Generator;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.util.Consumer;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class DatabaseManager {
 
-    public static final String GENERATOR_TABLE = "nextgens_generator";
+    public static final String GENERATOR_TABLE = "nextgens_generator_v2";
+    public static final String LEGACY_GENERATOR_TABLE = "nextgens_generator";
     public static final String USER_TABLE = "nextgens_user";
+    public static final String GENERATOR_TYPE_TABLE = "nextgens_generator_type";
+    public static final String REFUND_TABLE = "nextgens_refund";
+    public static final String MIGRATION_TABLE = "nextgens_migration";
+
+    private static final int MIGRATION_BATCH_SIZE = 500;
 
     private HikariDataSource dataSource;
+    // only present in single-writer sqlite mode, the data source is read-only then
+    private SQLiteWriter writer;
     private boolean mysql;
 
     public void connect() {
@@ -52,6 +69,8 @@ public class DatabaseManager {
             hikari.setDriverClassName("com.mysql.jdbc.Driver");
             hikari.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s?useSSL=%b",
                     host, port, database, useSSL));
+            // let the fetch size stream big results instead of reading them at once
+            hikari.addDataSourceProperty("useCursorFetch", true);
             hikari.setUsername(user);
             hikari.setPassword(password);
             hikari.setMinimumIdle(5);
@@ -61,20 +80,9 @@ public class DatabaseManager {
             Logger.info("Successfully established connection with MySQL database!");
 
         } else {
-            this.mysql = false;
-            hikari.setConnectionTestQuery("SELECT 1");
-            hikari.setDriverClassName("org.sqlite.JDBC");
-            hikari.setJdbcUrl("jdbc:sqlite:" + path);
-            hikari.setMaximumPoolSize(10);
-
             Logger.info("Trying to connect to the SQLite database...");
-            // create the file if it's not exist
             try {
-                File file = new File(path);
-                if (!file.exists()) {
-                    file.createNewFile();
-                }
-                this.dataSource = new HikariDataSource(hikari);
+                this.connectSQLite(path, config.getBoolean("sqlite.single-writer", true));
                 Logger.info("Successfully established connection with SQLite database!");
             } catch (IOException ex) {
                 Logger.severe("Failed to create the database file, stopping the server!");
@@ -84,14 +92,224 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Connect to the SQLite database file, it's created if it doesn't exist yet.
+     *
+     * @param singleWriter whether every write should go through a single connection in WAL mode
+     */
+    public void connectSQLite(String path, boolean singleWriter) throws IOException {
+        this.mysql = false;
+        // create the file if it's not exist
+        File file = new File(path);
+        if (!file.exists()) {
+            file.createNewFile();
+        }
+        if (!singleWriter) {
+            this.dataSource = new HikariDataSource(this.createSQLiteConfig(path, "NextGens Database Pool", 10));
+            return;
+        }
+        // one connection for every write, the journal mode is stored in the file
+        // with WAL the commits are durable once the WAL is synced on checkpoints, which is what NORMAL gives
+        HikariConfig writer = this.createSQLiteConfig(path, "NextGens Database Writer", 1);
+        writer.addDataSourceProperty("journal_mode", "WAL");
+        writer.addDataSourceProperty("synchronous", "NORMAL");
+        writer.addDataSourceProperty("busy_timeout", "5000");
+        this.writer = new SQLiteWriter(new HikariDataSource(writer));
+        // the readers never take the write lock, so they don't wait on the writer
+        HikariConfig reader = this.createSQLiteConfig(path, "NextGens Database Pool", 4);
+        reader.addDataSourceProperty("open_mode", "1");
+        reader.addDataSourceProperty("busy_timeout", "5000");
+        this.dataSource = new HikariDataSource(reader);
+    }
+
+    /**
+     * Every pool gets its own config, a copied config would share the data source properties.
+     */
+    private HikariConfig createSQLiteConfig(String path, String poolName, int poolSize) {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setConnectionTestQuery("SELECT 1");
+        hikari.setPoolName(poolName);
+        hikari.setMaxLifetime(1000000);
+        hikari.setConnectionTimeout(600000);
+        hikari.setIdleTimeout(600000);
+        hikari.setLeakDetectionThreshold(360000);
+        hikari.addDataSourceProperty("characterEncoding", "utf8");
+        hikari.addDataSourceProperty("useUnicode", true);
+        hikari.setDriverClassName("org.sqlite.JDBC");
+        hikari.setJdbcUrl("jdbc:sqlite:" + path);
+        hikari.setMaximumPoolSize(poolSize);
+        return hikari;
+    }
+
     public void createGeneratorTable() {
-        this.executeUpdate("CREATE TABLE IF NOT EXISTS " + GENERATOR_TABLE + " (" +
-                "owner VARCHAR(255), " +
-                "location TEXT UNIQUE, " +
-                "generator_id TEXT, " +
+        // the location is split into typed columns, the chunk columns are only there for the index
+        String columns = "owner " + (this.mysql ? "BINARY(16)" : "BLOB") + " NOT NULL, " +
+                "world VARCHAR(128) NOT NULL, " +
+                "x INT NOT NULL, " +
+                "y INT NOT NULL, " +
+                "z INT NOT NULL, " +
+                "chunk_x INT NOT NULL, " +
+                "chunk_z INT NOT NULL, " +
+                "generator_type INT NOT NULL, " +
                 "timer DECIMAL(18,2), " +
-                "is_corrupted INT" +
+                "is_corrupted INT, " +
+                "idle_time DOUBLE NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (world, x, y, z)";
+        if (this.mysql) {
+            // mysql doesn't support 'CREATE INDEX IF NOT EXISTS', so the indexes are part of the table
+            this.executeUpdate("CREATE TABLE IF NOT EXISTS " + GENERATOR_TABLE + " (" + columns + ", " +
+                    "INDEX idx_nextgens_generator_owner (owner), " +
+                    "INDEX idx_nextgens_generator_chunk (world, chunk_x, chunk_z)" +
+                    ");");
+        } else {
+            this.executeUpdate("CREATE TABLE IF NOT EXISTS " + GENERATOR_TABLE + " (" + columns + ");");
+            this.executeUpdate("CREATE INDEX IF NOT EXISTS idx_nextgens_generator_owner ON " + GENERATOR_TABLE + " (owner);");
+            this.executeUpdate("CREATE INDEX IF NOT EXISTS idx_nextgens_generator_chunk ON " + GENERATOR_TABLE + " (world, chunk_x, chunk_z);");
+        }
+        // the interned generator ids, generators refer to them by the type index
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS " + GENERATOR_TYPE_TABLE + " (" +
+                "type_index INT PRIMARY KEY, " +
+                "generator_id VARCHAR(255) UNIQUE" +
                 ");");
+        // tables of older versions don't have the owed idle time yet, the error is ignored once it exists
+        this.executeUpdate("ALTER TABLE " + GENERATOR_TABLE + " ADD COLUMN idle_time DOUBLE NOT NULL DEFAULT 0;", ex -> {});
+        // older versions of the legacy table don't have the type column yet
+        // directly add the column and ignore the error, it also fails if there is no legacy table
+        this.executeUpdate("ALTER TABLE " + LEGACY_GENERATOR_TABLE + " ADD COLUMN generator_type INT;", ex -> {});
+    }
+
+    /**
+     * Move the generators from the legacy table into the current table, in small transactions
+     * so it can run while the server is running and continue where it stopped after a crash.
+     * <p>
+     * Rows of worlds that aren't loaded stay in the legacy table until a later start,
+     * the legacy table is dropped once it's empty.
+     */
+    public void migrateGenerators(GeneratorRegistry registry) {
+        if (!this.tableExists(LEGACY_GENERATOR_TABLE)) {
+            return;
+        }
+        Logger.info("Migrating the generators to the new database table...");
+        String select = "SELECT owner, location, generator_id, generator_type FROM " + LEGACY_GENERATOR_TABLE +
+                " WHERE location > ? ORDER BY location LIMIT " + MIGRATION_BATCH_SIZE;
+        int migrated = 0, discarded = 0, remaining = 0;
+        String cursor = "";
+        while (true) {
+            // read the batch first, the connection is released before anything is written
+            List<String[]> rows = new ArrayList<>();
+            try (Connection connection = this.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(select)) {
+
+                statement.setString(1, cursor);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        rows.add(new String[]{result.getString(1), result.getString(2), result.getString(3), result.getString(4)});
+                    }
+                }
+            } catch (SQLException ex) {
+                Logger.severe("Failed to migrate the generators, the migration continues on the next start!");
+                ex.printStackTrace();
+                return;
+            }
+            if (rows.isEmpty()) {
+                break;
+            }
+            cursor = rows.get(rows.size() - 1)[1];
+
+            List<String> done = new ArrayList<>();
+            List<Object[]> inserts = new ArrayList<>();
+            for (String[] row : rows) {
+                UUID owner = this.parseUUID(row[0]);
+                int type;
+                try {
+                    type = row[3] != null ? Integer.parseInt(row[3]) : row[2] != null ? registry.intern(row[2]) : -1;
+                } catch (IllegalStateException ex) {
+                    Logger.severe("Failed to migrate the generators, the migration continues on the next start!");
+                    ex.printStackTrace();
+                    return;
+                }
+                // these rows have never been loadable, there is nothing to keep
+                if (owner == null || type < 0) {
+                    done.add(row[1]);
+                    discarded++;
+                    continue;
+                }
+                Location location;
+                try {
+                    location = LocationUtils.deserialize(row[1]);
+                } catch (Exception ex) {
+                    location = null;
+                }
+                if (location == null || location.getWorld() == null) {
+                    remaining++;
+                    continue;
+                }
+                inserts.add(new Object[]{owner, BlockKey.of(location), type, row[1]});
+                done.add(row[1]);
+            }
+            if (!this.migrateBatch(inserts, done)) {
+                Logger.severe("Failed to migrate the generators, the migration continues on the next start!");
+                return;
+            }
+            migrated += inserts.size();
+        }
+        if (discarded > 0) {
+            Logger.warning("Discarded " + discarded + " generators without an owner or generator id!");
+        }
+        if (remaining > 0) {
+            Logger.warning(remaining + " generators are in worlds that aren't loaded, they will be migrated on the next start!");
+        } else {
+            this.executeUpdate("DROP TABLE " + LEGACY_GENERATOR_TABLE + ";");
+        }
+        Logger.info("Successfully migrated " + migrated + " generators!");
+    }
+
+    private boolean migrateBatch(List<Object[]> inserts, List<String> done) {
+        // rows that already exist have been written by the running server and are newer
+        String insert = (this.mysql ? "INSERT IGNORE INTO " : "INSERT OR IGNORE INTO ") + GENERATOR_TABLE + " " +
+                "(owner, world, x, y, z, chunk_x, chunk_z, generator_type, timer, is_corrupted) " +
+                "SELECT ?, ?, ?, ?, ?, ?, ?, ?, timer, is_corrupted FROM " + LEGACY_GENERATOR_TABLE + " WHERE location=?";
+        String delete = "DELETE FROM " + LEGACY_GENERATOR_TABLE + " WHERE location=?";
+        return this.write(connection -> {
+            try (PreparedStatement insertStatement = connection.prepareStatement(insert);
+                 PreparedStatement deleteStatement = connection.prepareStatement(delete)) {
+
+                for (Object[] row : inserts) {
+                    this.setRow(insertStatement, (UUID) row[0], (BlockKey) row[1], (int) row[2]);
+                    // the timer and corruption are copied from the legacy row
+                    insertStatement.setString(9, (String) row[3]);
+                    insertStatement.addBatch();
+                }
+                for (String location : done) {
+                    deleteStatement.setString(1, location);
+                    deleteStatement.addBatch();
+                }
+                // the copies are written before the originals are removed
+                insertStatement.executeBatch();
+                deleteStatement.executeBatch();
+            }
+        });
+    }
+
+    private boolean tableExists(String table) {
+        try (Connection connection = this.getConnection();
+             ResultSet result = connection.getMetaData().getTables(connection.getCatalog(), null, table, null)) {
+            return result.next();
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    private UUID parseUUID(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
     }
 
     public void createUserTable() {
@@ -119,64 +337,236 @@ public class DatabaseManager {
         this.executeUpdate("ALTER TABLE " + USER_TABLE + " ADD COLUMN toggle_gens_sell BOOL NOT NULL DEFAULT 0;", ex -> {});
     }
 
-    public void deleteGenerator(ActiveGenerator active) {
-        String query = "DELETE FROM " + GENERATOR_TABLE + " WHERE location=?;";
-        try (Connection connection = this.getConnection();
-                PreparedStatement statement = connection.prepareStatement(query)) {
-            statement.setString(1, LocationUtils.serialize(active.getLocation()));
+    public void createRefundTable() {
+        // one row per player and generator id, the amount is how many items are owed
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS " + REFUND_TABLE + " (" +
+                "owner " + (this.mysql ? "BINARY(16)" : "BLOB") + " NOT NULL, " +
+                "generator_id VARCHAR(255) NOT NULL, " +
+                "amount INT NOT NULL, " +
+                "PRIMARY KEY (owner, generator_id)" +
+                ");");
+        // the one-time imports that have been done, e.g. the refunds of data.yml
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS " + MIGRATION_TABLE + " (" +
+                "name VARCHAR(64) NOT NULL PRIMARY KEY" +
+                ");");
+    }
 
-            statement.executeUpdate();
-        } catch (SQLException ex) {
-            ex.printStackTrace();
+    /**
+     * Add the amounts to the refunds of the players in a single transaction.
+     *
+     * @return false if the transaction failed and nothing has been added
+     */
+    public boolean addRefunds(Map<UUID, Map<String, Integer>> refunds) {
+        return this.write(connection -> this.insertRefunds(connection, refunds));
+    }
+
+    /**
+     * Add the refunds and record the migration in a single transaction, nothing is added
+     * if the migration has been recorded before. Safe to repeat if the source couldn't be cleared afterward.
+     *
+     * @return false if the transaction failed and nothing has been added
+     */
+    public boolean migrateRefunds(String migration, Map<UUID, Map<String, Integer>> refunds) {
+        return this.write(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 FROM " + MIGRATION_TABLE + " WHERE name=?;")) {
+                statement.setString(1, migration);
+                try (ResultSet result = statement.executeQuery()) {
+                    if (result.next()) {
+                        return;
+                    }
+                }
+            }
+            this.insertRefunds(connection, refunds);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO " + MIGRATION_TABLE + " (name) VALUES (?);")) {
+                statement.setString(1, migration);
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    private void insertRefunds(Connection connection, Map<UUID, Map<String, Integer>> refunds) throws SQLException {
+        String query = this.mysql ?
+                "INSERT INTO " + REFUND_TABLE + " (owner, generator_id, amount) VALUES (?,?,?) " +
+                        "ON DUPLICATE KEY UPDATE amount = amount + VALUES(amount)" :
+                "INSERT INTO " + REFUND_TABLE + " (owner, generator_id, amount) VALUES (?,?,?) " +
+                        "ON CONFLICT(owner, generator_id) DO UPDATE SET amount = amount + excluded.amount";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (Map.Entry<UUID, Map<String, Integer>> entry : refunds.entrySet()) {
+                byte[] owner = toBytes(entry.getKey());
+                for (Map.Entry<String, Integer> refund : entry.getValue().entrySet()) {
+                    statement.setBytes(1, owner);
+                    statement.setString(2, refund.getKey());
+                    statement.setInt(3, refund.getValue());
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
         }
     }
 
-    public void saveGenerator(ActiveGenerator active) {
+    /**
+     * Read and remove the refunds of the player in a single transaction.
+     *
+     * @return generator id -> amount, or null if the transaction failed and nothing has been removed
+     */
+    public Map<String, Integer> takeRefunds(UUID uuid) {
+        Map<String, Integer> refunds = new HashMap<>();
+        byte[] owner = toBytes(uuid);
+        boolean success = this.write(connection -> {
+            refunds.clear();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT generator_id, amount FROM " + REFUND_TABLE + " WHERE owner=?;")) {
+                statement.setBytes(1, owner);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        refunds.merge(result.getString(1), result.getInt(2), Integer::sum);
+                    }
+                }
+            }
+            if (refunds.isEmpty()) {
+                return;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM " + REFUND_TABLE + " WHERE owner=?;")) {
+                statement.setBytes(1, owner);
+                statement.executeUpdate();
+            }
+        });
+        return success ? refunds : null;
+    }
+
+    public void deleteGenerator(ActiveGenerator active) {
+        this.deleteGenerator(List.of(active));
+    }
+
+    /**
+     * Delete the generators in a single transaction.
+     *
+     * @return false if the transaction failed and nothing has been deleted
+     */
+    public boolean deleteGenerator(Collection<ActiveGenerator> activeGenerators) {
+        String query = "DELETE FROM " + GENERATOR_TABLE + " WHERE world=? AND x=? AND y=? AND z=?;";
+        return this.write(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                int batchSize = 0;
+
+                for (ActiveGenerator active : activeGenerators) {
+                    BlockKey key = active.getKey();
+                    if (key == null) continue;
+
+                    statement.setString(1, key.getWorldName());
+                    statement.setInt(2, key.getX());
+                    statement.setInt(3, key.getY());
+                    statement.setInt(4, key.getZ());
+
+                    statement.addBatch();
+                    batchSize++;
+
+                    if (batchSize % 100 == 0) {
+                        statement.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+
+                // Execute the remaining batch
+                statement.executeBatch();
+            }
+        });
+    }
+
+    public void saveGenerator(ActiveGenerator active, GeneratorRegistry registry) {
         // if the world is null, skip it
-        if (active == null || active.getOwner() == null || active.getLocation().getWorld() == null) {
+        if (active == null || active.getOwner() == null || active.getKey() == null) {
             return;
         }
-        this.saveGenerator(List.of(active));
+        this.saveGenerator(List.of(active), registry);
     }
 
-    public void saveGenerator(Collection<ActiveGenerator> activeGenerators) {
+    /**
+     * Save the generators in a single transaction.
+     *
+     * @return false if the transaction failed and nothing has been saved
+     */
+    public boolean saveGenerator(Collection<ActiveGenerator> activeGenerators, GeneratorRegistry registry) {
         String query = this.mysql ?
                 "INSERT INTO " + GENERATOR_TABLE + " " +
-                        "(owner, location, generator_id, timer, is_corrupted) " +
-                        "VALUES (?,?,?,?,?) ON DUPLICATE KEY UPDATE generator_id = VALUES(generator_id), timer = VALUES(timer), is_corrupted = VALUES(is_corrupted)" :
+                        "(owner, world, x, y, z, chunk_x, chunk_z, generator_type, timer, is_corrupted, idle_time) " +
+                        "VALUES (?,?,?,?,?,?,?,?,?,?,?) ON DUPLICATE KEY UPDATE owner = VALUES(owner), generator_type = VALUES(generator_type), timer = VALUES(timer), is_corrupted = VALUES(is_corrupted), idle_time = VALUES(idle_time)" :
                 "INSERT INTO " + GENERATOR_TABLE + " " +
-                        "(owner, location, generator_id, timer, is_corrupted) " +
-                        "VALUES (?,?,?,?,?) ON CONFLICT(location) DO UPDATE SET generator_id = excluded.generator_id, timer = excluded.timer, is_corrupted = excluded.is_corrupted";
-
-        try (Connection connection = this.getConnection();
-             PreparedStatement statement = connection.prepareStatement(query)) {
-
-            int batchSize = 0;
+                        "(owner, world, x, y, z, chunk_x, chunk_z, generator_type, timer, is_corrupted, idle_time) " +
+                        "VALUES (?,?,?,?,?,?,?,?,?,?,?) ON CONFLICT(world, x, y, z) DO UPDATE SET owner = excluded.owner, generator_type = excluded.generator_type, timer = excluded.timer, is_corrupted = excluded.is_corrupted, idle_time = excluded.idle_time";
 
+        // the types are stored before the transaction, a type that is rolled back with it would be lost
+        Map<ActiveGenerator, Integer> types = new HashMap<>();
+        try {
             for (ActiveGenerator active : activeGenerators) {
-                if (active.getOwner() == null || active.getLocation().getWorld() == null) continue;
-
-                statement.setString(1, active.getOwner().toString());
-                statement.setString(2, LocationUtils.serialize(active.getLocation()));
-                statement.setString(3, active.getGenerator().id());
-                statement.setDouble(4, active.getTimer());
-                statement.setBoolean(5, active.isCorrupted());
-
-                statement.addBatch();
-                batchSize++;
-
-                if (batchSize % 100 == 0) {
-                    statement.executeBatch();
-                    batchSize = 0;
+                Generator generator = active.getGenerator();
+                if (generator != null) {
+                    types.put(active, registry.typeOf(generator));
                 }
             }
-
-            // Execute the remaining batch
-            statement.executeBatch();
-
-        } catch (SQLException ex) {
+        } catch (IllegalStateException ex) {
             ex.printStackTrace();
+            return false;
         }
+        return this.write(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+
+                int batchSize = 0;
+
+                for (ActiveGenerator active : activeGenerators) {
+                    UUID owner = active.getOwner();
+                    Integer type = types.get(active);
+                    BlockKey key = active.getKey();
+                    if (owner == null || type == null || key == null) continue;
+
+                    // the type index survives renames, so the id itself isn't stored
+                    this.setRow(statement, owner, key, type);
+                    statement.setDouble(9, active.getTimer());
+                    statement.setBoolean(10, active.isCorrupted());
+                    statement.setDouble(11, active.getIdleTime());
+
+                    statement.addBatch();
+                    batchSize++;
+
+                    if (batchSize % 100 == 0) {
+                        statement.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+
+                // Execute the remaining batch
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Set the first 8 parameters of the statement, in the column order of the generator table.
+     */
+    private void setRow(PreparedStatement statement, UUID owner, BlockKey key, int type) throws SQLException {
+        statement.setBytes(1, toBytes(owner));
+        statement.setString(2, key.getWorldName());
+        statement.setInt(3, key.getX());
+        statement.setInt(4, key.getY());
+        statement.setInt(5, key.getZ());
+        statement.setInt(6, key.getChunkX());
+        statement.setInt(7, key.getChunkZ());
+        statement.setInt(8, type);
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
     }
 
     public void executeUpdate(String statement) {
@@ -187,13 +577,11 @@ public class DatabaseManager {
     }
 
     public void executeUpdate(String statement, Consumer<SQLException> onFailure) {
-        try (Connection connection = this.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
-
-            preparedStatement.executeUpdate();
-        } catch (SQLException ex) {
-            onFailure.accept(ex);
-        }
+        this.write(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(statement)) {
+                preparedStatement.executeUpdate();
+            }
+        }, onFailure);
     }
 
     public void executeQuery(String statement, QueryConsumer<ResultSet> callback) {
@@ -221,16 +609,57 @@ public class DatabaseManager {
         });
     }
 
+    /**
+     * Build and run a statement that changes the database, it's executed as a write.
+     */
     public void buildStatement(String query, QueryConsumer<PreparedStatement> consumer, Consumer<SQLException> onFailure) {
-        try (Connection connection = this.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+        this.write(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                consumer.accept(preparedStatement);
+            }
+        }, onFailure);
+    }
+
+    /**
+     * Run the work in a single transaction, in sqlite single-writer mode it's committed
+     * together with the other writes that are waiting.
+     *
+     * @return false if the transaction failed and nothing has been written
+     */
+    public boolean write(QueryConsumer<Connection> work) {
+        return this.write(work, ex -> ex.printStackTrace());
+    }
 
-            consumer.accept(preparedStatement);
+    public boolean write(QueryConsumer<Connection> work, Consumer<SQLException> onFailure) {
+        SQLException failure = this.writer != null ? this.writer.write(work) : this.writePooled(work);
+        if (failure != null) {
+            onFailure.accept(failure);
+            return false;
+        }
+        return true;
+    }
+
+    private SQLException writePooled(QueryConsumer<Connection> work) {
+        try (Connection connection = this.dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                work.accept(connection);
+                connection.commit();
+                return null;
+            } catch (SQLException ex) {
+                connection.rollback();
+                return ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException ex) {
-            onFailure.accept(ex);
+            return ex;
         }
     }
 
+    /**
+     * @return a connection for reading, writes have to go through {@link #write(QueryConsumer)}
+     */
     public Connection getConnection() throws SQLException {
         return this.dataSource.getConnection();
     }
@@ -240,6 +669,10 @@ public class DatabaseManager {
     }
 
     public void close() {
+        // the queued writes are committed first
+        if (this.writer != null) {
+            this.writer.close();
+        }
         this.dataSource.close();
     }
 
@@ -13,12 +13,15 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class EventManager {
 
     private final List<Event> eventList = new ArrayList<>();
+    private final List<Consumer<Event>> listeners = new CopyOnWriteArrayList<>();
 
     private Event activeEvent;
     private int index;
@@ -121,7 +124,7 @@ public class EventManager {
         if (refreshed == null) {
             this.forceEnd();
         } else {
-            this.activeEvent = refreshed;
+            this.setActiveEvent(refreshed);
             this.activeEvent.setDuration(duration);
         }
     }
@@ -165,9 +168,9 @@ public class EventManager {
             this.waitTime = this.getDefaultWaitTime();
 
             // Assign the next event
-            this.activeEvent = this.isRandom()
+            this.setActiveEvent(this.isRandom()
                     ? this.getRandomEvent().clone()
-                    : this.getNextEvent(true).clone();
+                    : this.getNextEvent(true).clone());
 
             // Send start messages
             if (this.activeEvent != null) {
@@ -191,7 +194,7 @@ public class EventManager {
         if (this.activeEvent.getDuration() <= 0) {
             // End the current event
             this.activeEvent.sendEndMessage();
-            this.activeEvent = null;
+            this.setActiveEvent(null);
             return;
         }
 
@@ -201,7 +204,7 @@ public class EventManager {
 
     public void forceStart(Event event) {
         // assign the active event
-        this.activeEvent = event.clone();
+        this.setActiveEvent(event.clone());
         // send start messages
         this.activeEvent.sendStartMessage();
         // reset back the wait time
@@ -213,7 +216,7 @@ public class EventManager {
             return false;
         }
         this.activeEvent.sendEndMessage();
-        this.activeEvent = null;
+        this.setActiveEvent(null);
         this.waitTime = this.getDefaultWaitTime();
         return true;
     }
@@ -227,7 +230,7 @@ public class EventManager {
             Event event = this.getEvent(eventId);
             event.setDuration(config.getDouble("events.timer"));
             // set the active event to this one
-            this.activeEvent = event;
+            this.setActiveEvent(event);
         }
         int waitTime = config.getInt("event-wait-time");
         int index = config.getInt("event-index");
@@ -256,6 +259,21 @@ public class EventManager {
         return activeEvent;
     }
 
+    /**
+     * Register a listener that will be called every time the active event changes.
+     *
+     * @param listener Consumer of the new active event, null if the event has ended
+     */
+    public void addListener(Consumer<Event> listener) {
+        this.listeners.add(listener);
+    }
+
+    private void setActiveEvent(Event event) {
+        this.activeEvent = event;
+        // notify the listeners
+        this.listeners.forEach(listener -> listener.accept(event));
+    }
+
     public boolean isEnabled() {
         return NextGens.EVENTS_CONFIG.getBoolean("events.enabled");
     }
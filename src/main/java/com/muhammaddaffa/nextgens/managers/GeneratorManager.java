@@ -5,9 +5,21 @@ import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.api.events.generators.GeneratorLoadEvent;
 import com.muhammaddaffa.nextgens.managers.DatabaseManager;
 import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.BlockKey;
 import com.muhammaddaffa.nextgens.objects.Drop;
 import com.muhammaddaffa.nextgens.objects.Generator;
+import com.muhammaddaffa.nextgens.objects.GeneratorStore;
+import com.muhammaddaffa.nextgens.generators.GeneratorGrid;
+import com.muhammaddaffa.nextgens.generators.GeneratorJournal;
+import com.muhammaddaffa.nextgens.generators.GeneratorLoader;
+import com.muhammaddaffa.nextgens.generators.LoadProgress;
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
+import com.muhammaddaffa.nextgens.generators.GeneratorSnapshot;
+import com.muhammaddaffa.nextgens.generators.runnables.BlockClearTask;
 import com.muhammaddaffa.nextgens.generators.runnables.GeneratorTask;
+import com.muhammaddaffa.nextgens.generators.scheduler.ChunkIndex;
+import com.muhammaddaffa.nextgens.generators.scheduler.GeneratorPlanCache;
+import com.muhammaddaffa.nextgens.generators.scheduler.GeneratorScheduler;
 import com.muhammaddaffa.nextgens.requirements.GensRequirement;
 import com.muhammaddaffa.nextgens.requirements.impl.PermissionRequirement;
 import com.muhammaddaffa.nextgens.requirements.impl.PlaceholderRequirement;
@@ -17,6 +29,7 @@ import net.brcdev.shopgui.core.BConfig;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -30,22 +43,81 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class GeneratorManager {
 
+    // how many generators are written in a single batch when flushing
+    private static final int FLUSH_BATCH_SIZE = 500;
+
     private final Map<String, Generator> generatorMap = new HashMap<>();
-    private final ConcurrentMap<String, ActiveGenerator> activeGenerators = new ConcurrentHashMap<>();
+    private final ConcurrentMap<BlockKey, ActiveGenerator> activeGenerators = new ConcurrentHashMap<>();
+    // the state of the active generators, the generators themselves are views of the store
+    private final GeneratorStore store;
 
-    private final Map<UUID, Integer> generatorCount = new HashMap<>();
+    // owner -> generators, the set of an owner is removed once it's empty
+    private final ConcurrentMap<UUID, Set<ActiveGenerator>> ownerIndex = new ConcurrentHashMap<>();
 
     private final DatabaseManager dbm;
-    public GeneratorManager(DatabaseManager dbm) {
+    private final GeneratorRegistry registry;
+    private final GeneratorPlanCache planCache;
+    private final GeneratorScheduler scheduler;
+    private final ChunkIndex chunkIndex;
+    private final GeneratorGrid grid = new GeneratorGrid();
+
+    // write-behind state, deletes of unregistered generators and the flush in progress
+    private final Queue<ActiveGenerator> pendingDeletes = new ConcurrentLinkedQueue<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final LoadProgress loadProgress = new LoadProgress();
+    // every change that hasn't been flushed yet is recorded here as well
+    private final GeneratorJournal journal = new GeneratorJournal(new File("plugins/NextGens/journal"));
+    // binary copy of the active generators, the journal is replayed on top of it at startup
+    private final File snapshotFile = new File("plugins/NextGens/generators.snapshot");
+    // the first journal segment that isn't in the snapshot, and the first that isn't in the database
+    private volatile long snapshotSegment = Long.MAX_VALUE;
+    private long flushedSegment = -1;
+    // whether some stored generators couldn't be loaded, a snapshot would lose them
+    private boolean partial;
+
+    public GeneratorManager(DatabaseManager dbm, EventManager eventManager) {
         this.dbm = dbm;
+        this.registry = new GeneratorRegistry(dbm);
+        this.store = new GeneratorStore(this.registry);
+        this.planCache = new GeneratorPlanCache(this, eventManager);
+        this.scheduler = new GeneratorScheduler(this.planCache);
+        this.chunkIndex = new ChunkIndex(this.scheduler);
+        // events could change the generator speed
+        eventManager.addListener(event -> this.rescheduleActiveGenerator());
+    }
+
+    public GeneratorScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public ChunkIndex getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public GeneratorPlanCache getPlanCache() {
+        return planCache;
+    }
+
+    public GeneratorStore getStore() {
+        return store;
+    }
+
+    public GeneratorRegistry getRegistry() {
+        return registry;
     }
 
     @Nullable
@@ -53,6 +125,14 @@ public class GeneratorManager {
         return this.generatorMap.get(id);
     }
 
+    /**
+     * @return the latest generator of the interned id, generators removed from the config are kept
+     */
+    @Nullable
+    public Generator getGenerator(int type) {
+        return this.registry.getGenerator(type);
+    }
+
     @Nullable
     public Generator getGenerator(ItemStack stack) {
         if (stack == null || stack.getType() == Material.AIR || stack.getItemMeta() == null) {
@@ -100,23 +180,8 @@ public class GeneratorManager {
     }
 
     public int getGeneratorCount(UUID uuid) {
-        return this.generatorCount.getOrDefault(uuid, 0);
-    }
-
-    public void addGeneratorCount(Player player, int amount) {
-        this.addGeneratorCount(player.getUniqueId(), amount);
-    }
-
-    public void addGeneratorCount(UUID uuid, int amount) {
-        this.generatorCount.put(uuid, this.generatorCount.getOrDefault(uuid, 0) + amount);
-    }
-
-    public void removeGeneratorCount(Player player, int amount) {
-        this.removeGeneratorCount(player.getUniqueId(), amount);
-    }
-
-    public void removeGeneratorCount(UUID uuid, int amount) {
-        this.generatorCount.put(uuid, this.generatorCount.getOrDefault(uuid, 0) - amount);
+        Set<ActiveGenerator> owned = this.ownerIndex.get(uuid);
+        return owned == null ? 0 : owned.size();
     }
 
     public Collection<ActiveGenerator> getActiveGenerator() {
@@ -128,27 +193,64 @@ public class GeneratorManager {
         return this.getActiveGenerator(player.getUniqueId());
     }
 
+    /**
+     * @return a snapshot of the generators owned by the player, safe to modify while iterating
+     */
     @NotNull
     public List<ActiveGenerator> getActiveGenerator(UUID uuid) {
-        return this.getActiveGenerator().stream()
-                .filter(active -> active.getOwner().equals(uuid))
-                .collect(Collectors.toList());
+        return new ArrayList<>(this.getOwnedGenerators(uuid));
+    }
+
+    /**
+     * @return a live read-only view of the generators owned by the player
+     */
+    @NotNull
+    public Collection<ActiveGenerator> getOwnedGenerators(UUID uuid) {
+        // looks the set up on every call, the set of the owner is replaced after it has been emptied
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<ActiveGenerator> iterator() {
+                return Collections.unmodifiableSet(this.owned()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return this.owned().size();
+            }
+
+            @Override
+            public boolean contains(Object object) {
+                return this.owned().contains(object);
+            }
+
+            private Set<ActiveGenerator> owned() {
+                return ownerIndex.getOrDefault(uuid, Collections.emptySet());
+            }
+        };
     }
 
     @Nullable
     public ActiveGenerator getActiveGenerator(@Nullable Block block) {
         if (block == null) return null;
-        return this.getActiveGenerator(block.getLocation());
+        return this.getActiveGenerator(BlockKey.of(block));
     }
 
     @Nullable
     public ActiveGenerator getActiveGenerator(@NotNull Location location) {
-        return this.getActiveGenerator(LocationUtils.serialize(location));
+        if (location.getWorld() == null) return null;
+        return this.getActiveGenerator(BlockKey.of(location));
     }
 
     @Nullable
-    public ActiveGenerator getActiveGenerator(String serialized) {
-        return this.activeGenerators.get(serialized);
+    public ActiveGenerator getActiveGenerator(@NotNull BlockKey key) {
+        return this.activeGenerators.get(key);
+    }
+
+    /**
+     * Check whether there is any active generator closer than the distance to the block.
+     */
+    public boolean isNearGenerator(@NotNull Block block, double distance) {
+        return this.grid.isNear(BlockKey.of(block), distance, this.activeGenerators.values());
     }
 
     public ActiveGenerator registerGenerator(Player owner, @NotNull Generator generator, @NotNull Block block) {
@@ -160,45 +262,83 @@ public class GeneratorManager {
         // check if block is already active generator or not
         if (active == null) {
             // register the new one
-            String serialized = LocationUtils.serialize(block.getLocation());
             active = new ActiveGenerator(owner, block.getLocation(), generator);
-            this.activeGenerators.put(serialized, active);
-            // add generator count
-            this.addGeneratorCount(owner, 1);
+            // move the state into the store before the generator is visible to anyone
+            this.store.bind(active, true);
+            this.activeGenerators.put(active.getKey(), active);
+            // add it to the owner and spatial index before it's scheduled
+            this.index(active);
+            this.chunkIndex.add(active);
         } else {
             // change the generator id
             active.setGenerator(generator);
             // set the block
             Executor.syncLater(2L, () -> block.setType(generator.item().getType()));
         }
-        ActiveGenerator finalActive = active;
-        // save the generator on the database
-        Executor.async(() -> this.dbm.saveGenerator(finalActive));
+        // the generator is saved on the next flush
+        this.requestFlush();
         return active;
     }
 
     public void unregisterGenerator(@Nullable Block block) {
         if (block == null) return;
-        this.unregisterGenerator(block.getLocation());
+        this.unregisterGenerator(BlockKey.of(block));
     }
 
     public void unregisterGenerator(Location location) {
-        this.unregisterGenerator(LocationUtils.serialize(location));
+        if (location.getWorld() == null) return;
+        this.unregisterGenerator(BlockKey.of(location));
+    }
+
+    public void unregisterGenerator(BlockKey key) {
+        ActiveGenerator active = this.activeGenerators.get(key);
+        if (active != null) {
+            this.unregisterGenerators(List.of(active), false);
+        }
     }
 
-    public void unregisterGenerator(String serialized) {
-        ActiveGenerator removed = this.activeGenerators.remove(serialized);
-        // check if the remove is successful
-        if (removed != null) {
+    /**
+     * Unregister many generators at once, the indexes are updated together and the generators
+     * are deleted from the database in a single transaction on the next flush.
+     *
+     * @param clearBlocks whether the blocks should be set to air, spread over the next ticks
+     * @return the generators that have been unregistered, the others weren't active anymore
+     */
+    public List<ActiveGenerator> unregisterGenerators(Collection<ActiveGenerator> generators, boolean clearBlocks) {
+        List<ActiveGenerator> removed = new ArrayList<>(generators.size());
+        List<BlockKey> keys = new ArrayList<>(generators.size());
+        for (ActiveGenerator active : generators) {
+            BlockKey key = active.getKey();
+            // check if the remove is successful
+            if (key != null && this.activeGenerators.remove(key, active)) {
+                removed.add(active);
+                keys.add(key);
+            }
+        }
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        // stop ticking the generators
+        this.chunkIndex.removeAll(removed);
+        for (ActiveGenerator active : removed) {
             // remove the corrupt status
-            removed.setCorrupted(false);
+            active.setCorrupted(false);
             // force remove
-            GeneratorTask.destroy(removed);
-            // remove the generator count
-            this.removeGeneratorCount(removed.getOwner(), 1);
-            // remove the generator from the database
-            Executor.async(() -> this.dbm.deleteGenerator(removed));
+            GeneratorTask.destroy(active);
         }
+        // remove them from the owner and spatial index
+        this.unindex(removed);
+        // free the rows, the removed generators keep their own state
+        this.store.unbindAll(removed);
+        // remove the generators from the database on the next flush. they're queued before they're
+        // recorded, a flush that rotates the record away has to delete them before it compacts
+        this.pendingDeletes.addAll(removed);
+        keys.forEach(this.journal::delete);
+        this.requestFlush();
+        if (clearBlocks) {
+            BlockClearTask.submit(removed);
+        }
+        return removed;
     }
 
     public void removeAllGenerator(Player player) {
@@ -206,52 +346,315 @@ public class GeneratorManager {
     }
 
     public void removeAllGenerator(UUID uuid) {
-        this.getActiveGenerator(uuid).forEach(active -> {
-            // Get the block
-            Block block = active.getLocation().getBlock();
-            // Unregister the generator and set it to air
-            this.unregisterGenerator(block);
-            block.setType(Material.AIR);
-        });
+        // the blocks are set to air over the next ticks
+        this.unregisterGenerators(this.getActiveGenerator(uuid), true);
     }
 
     public void loadActiveGenerator() {
-        String query = "SELECT * FROM " + DatabaseManager.GENERATOR_TABLE;
-        this.dbm.executeQuery(query, result -> {
-            while (result.next()) {
-                // get the uuid string
-                String uuidString = result.getString(1);
-                // if the uuid string is null, skip the iteration
-                if (uuidString == null) {
-                    continue;
+        // move the generators of older versions into the current table first
+        this.dbm.migrateGenerators(this.registry);
+
+        long start = System.currentTimeMillis();
+        try {
+            // the snapshot is only current together with the journal
+            boolean snapshots = Settings.SNAPSHOT_ENABLED && Settings.JOURNAL_ENABLED;
+            if (snapshots && this.loadSnapshot()) {
+                Logger.info("Successfully loaded " + this.activeGenerators.size() + " active generators from the snapshot! (" +
+                        (System.currentTimeMillis() - start) + "ms)");
+            } else {
+                if (Settings.JOURNAL_ENABLED) {
+                    // the generators the journal will change are only known once it's replayed
+                    this.journal.replay(this::addJournalChunk);
                 }
-                // otherwise, continue to load
-                UUID owner = UUID.fromString(uuidString);
-                String serialized = result.getString(2);
-                Location location = LocationUtils.deserialize(serialized);
-                String generatorId = result.getString(3);
-                double timer = result.getDouble(4);
-                boolean isCorrupted = result.getBoolean(5);
-
-                Generator generator = this.getGenerator(generatorId);
-                if (generatorId == null || generator == null || location.getWorld() == null) continue;
-
-                // store it on the map
-                this.activeGenerators.put(serialized, new ActiveGenerator(owner, location, generator, timer, isCorrupted));
-                // add generator count
-                this.addGeneratorCount(owner, 1);
+                GeneratorLoader loader = new GeneratorLoader(this.dbm, this.registry);
+                loader.load(batch -> batch.forEach(this::addLoaded), this.loadProgress);
+                this.partial = loader.isPartial();
+                // send log message
+                Logger.info("Successfully loaded " + this.activeGenerators.size() + " active generators! (" +
+                        (System.currentTimeMillis() - start) + "ms)");
             }
-            // send log message
-            Logger.info("Successfully loaded " + this.activeGenerators.size() + " active generators!");
+            if (snapshots) {
+                // keep the journal until the next snapshot has been written, the old one still needs it
+                this.snapshotSegment = -1;
+            }
+            if (Settings.JOURNAL_ENABLED) {
+                this.openJournal();
+            }
+            if (snapshots && !this.partial && this.journal.isOpen()) {
+                this.writeSnapshot();
+            } else {
+                this.snapshotSegment = Long.MAX_VALUE;
+                // the changes of this run aren't recorded, an old snapshot would bring back removed generators
+                if (this.snapshotFile.exists() && !this.snapshotFile.delete()) {
+                    Logger.warning("Failed to delete the outdated generator snapshot!");
+                }
+            }
+        } finally {
+            // never leave the tasks and listeners waiting, even if the load failed
+            this.loadProgress.complete();
+            this.ready.complete(null);
+        }
+    }
+
+    /**
+     * Load the active generators from the snapshot, the journal is replayed on top of it afterward.
+     *
+     * @return false if the snapshot can't be used, nothing is loaded then
+     */
+    private boolean loadSnapshot() {
+        List<ActiveGenerator> loaded = new ArrayList<>();
+        Map<String, World> worlds = new HashMap<>();
+        boolean[] complete = {true};
+        boolean read = GeneratorSnapshot.read(this.snapshotFile, (type, worldName, position, ownerMost, ownerLeast, timer, corrupted, idle) -> {
+            World world = worlds.computeIfAbsent(worldName, Bukkit::getWorld);
+            Generator generator = this.getGenerator(type);
+            if (world == null || generator == null) {
+                complete[0] = false;
+                return;
+            }
+            Location location = new Location(world, BlockKey.unpackX(position), BlockKey.unpackY(position), BlockKey.unpackZ(position));
+            loaded.add(new ActiveGenerator(new UUID(ownerMost, ownerLeast), location, generator, timer, corrupted, idle));
         });
+        if (!read) {
+            return false;
+        }
+        if (!complete[0]) {
+            // the database still has the generators of the missing worlds and generators
+            Logger.warning("The generator snapshot has generators of missing worlds or generators, loading from the database instead!");
+            return false;
+        }
+        loaded.forEach(this::addLoaded);
+        return true;
+    }
+
+    /**
+     * Write every active generator into the snapshot, the journal segments before it are deleted
+     * once their changes are in the database as well.
+     */
+    public void writeSnapshot() {
+        if (!Settings.SNAPSHOT_ENABLED || this.partial || !this.journal.isOpen()) {
+            return;
+        }
+        synchronized (this.flushLock) {
+            // everything recorded before this point is in the snapshot
+            long segment = this.rotateJournal();
+            if (segment < 0) {
+                return;
+            }
+            try {
+                GeneratorSnapshot.write(this.snapshotFile, this.store);
+            } catch (IOException ex) {
+                Logger.severe("Failed to write the generator snapshot!");
+                ex.printStackTrace();
+                return;
+            }
+            this.snapshotSegment = segment;
+            this.compactJournal();
+        }
+    }
+
+    /**
+     * Apply the changes that didn't make it into the database before the server stopped,
+     * and start recording the new ones.
+     */
+    private void openJournal() {
+        int replayed = this.journal.replay(this::applyJournal);
+        try {
+            this.journal.open(Math.max(1, Settings.JOURNAL_SYNC_INTERVAL));
+        } catch (IOException ex) {
+            Logger.severe("Failed to open the generator journal, changes are only saved to the database!");
+            ex.printStackTrace();
+            return;
+        }
+        this.store.setChangeListener(this.journal::put);
+        if (replayed > 0) {
+            Logger.info("Recovered " + replayed + " generator changes from the journal!");
+            // write them to the database, the replayed segments are deleted afterward
+            this.flushActiveGenerators(0);
+        }
+    }
+
+    private void applyJournal(GeneratorJournal.Record record) {
+        World world = Bukkit.getWorld(record.world());
+        if (world == null) {
+            return;
+        }
+        BlockKey key = BlockKey.of(world, record.x(), record.y(), record.z());
+        ActiveGenerator active = this.activeGenerators.get(key);
+        if (record.delete()) {
+            this.unregisterGenerator(key);
+            return;
+        }
+        Generator generator = this.getGenerator(record.type());
+        if (generator == null) {
+            return;
+        }
+        if (active != null && active.getOwner().equals(record.owner())) {
+            active.setGenerator(generator);
+            active.setCorrupted(record.corrupted());
+            active.setTimer(record.timer());
+            active.setIdleTime(record.idle());
+            return;
+        }
+        // the generator has been placed, or it belongs to someone else now
+        if (active != null) {
+            this.unregisterGenerator(key);
+        }
+        active = new ActiveGenerator(record.owner(), key.toLocation(), generator, record.timer(), record.corrupted(),
+                record.idle());
+        this.store.bind(active, true);
+        this.activeGenerators.put(key, active);
+        this.index(active);
+        this.chunkIndex.add(active);
+    }
+
+    private void addLoaded(ActiveGenerator active) {
+        // the generators around the players have been loaded already, and might have been removed since
+        BlockKey key = active.getKey();
+        if (key == null || this.loadProgress.isReady(key) || this.activeGenerators.containsKey(key)) {
+            return;
+        }
+        // move the state into the store before the generator is visible to anyone
+        this.store.bind(active, false);
+        if (this.activeGenerators.putIfAbsent(key, active) != null) {
+            this.store.unbind(active);
+            return;
+        }
+        // add it to the owner and spatial index before it's scheduled
+        this.index(active);
+        this.chunkIndex.add(active);
+    }
+
+    /**
+     * @return completed once the active generators have been loaded from the database
+     */
+    public CompletableFuture<Void> getReadyFuture() {
+        return ready;
+    }
+
+    public boolean isReady() {
+        return this.ready.isDone();
     }
 
+    /**
+     * @return true if the generator at the block, if there is one, has been loaded already
+     */
+    public boolean isReady(Block block) {
+        return this.isReady() || this.loadProgress.isReady(BlockKey.of(block));
+    }
+
+    private void addJournalChunk(GeneratorJournal.Record record) {
+        World world = Bukkit.getWorld(record.world());
+        if (world != null) {
+            this.loadProgress.addJournalChunk(BlockKey.of(world, record.x(), record.y(), record.z()));
+        }
+    }
+
+    /**
+     * Mark the generator to be saved on the next flush.
+     */
     public void saveActiveGenerator(ActiveGenerator active) {
-        this.dbm.saveGenerator(active);
+        this.store.markDirty(active);
+        this.requestFlush();
     }
 
+    /**
+     * Save every active generator right away, including the timer progress.
+     */
     public void saveActiveGenerator() {
-        this.dbm.saveGenerator(this.activeGenerators.values());
+        this.dbm.saveGenerator(this.activeGenerators.values(), this.registry);
+    }
+
+    /**
+     * Write the pending deletes and the changed generators to the database.
+     * Timer progress alone doesn't make a generator changed, it's written along with the other changes.
+     *
+     * @param budget how many milliseconds the flush may take, 0 or less to flush everything
+     * @return how many generators have been written
+     */
+    public int flushActiveGenerators(long budget) {
+        synchronized (this.flushLock) {
+            // nothing changed, don't start a new journal segment for nothing
+            if (this.pendingDeletes.isEmpty() && !this.store.hasDirty()) {
+                return 0;
+            }
+            long deadline = budget <= 0 ? Long.MAX_VALUE : System.currentTimeMillis() + budget;
+            int written = 0;
+            // the changes recorded before this point are all flushed once nothing is left to flush
+            long segment = this.rotateJournal();
+            // deletes go first, a new generator could have been placed at the same location
+            List<ActiveGenerator> deletes = new ArrayList<>();
+            ActiveGenerator removed;
+            while ((removed = this.pendingDeletes.poll()) != null) {
+                deletes.add(removed);
+            }
+            if (!deletes.isEmpty()) {
+                if (!this.dbm.deleteGenerator(deletes)) {
+                    // try again on the next flush
+                    this.pendingDeletes.addAll(deletes);
+                    return written;
+                }
+                written += deletes.size();
+            }
+            while (System.currentTimeMillis() < deadline) {
+                List<ActiveGenerator> batch = this.store.drainDirty(FLUSH_BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                if (!this.dbm.saveGenerator(batch, this.registry)) {
+                    // try again on the next flush
+                    batch.forEach(this.store::markDirty);
+                    break;
+                }
+                written += batch.size();
+            }
+            // the older journal segments are in the database now
+            if (segment >= 0 && this.pendingDeletes.isEmpty() && !this.store.hasDirty()) {
+                this.flushedSegment = segment;
+                this.compactJournal();
+            }
+            return written;
+        }
+    }
+
+    private long rotateJournal() {
+        if (!this.journal.isOpen()) {
+            return -1;
+        }
+        try {
+            return this.journal.rotate();
+        } catch (IOException ex) {
+            Logger.severe("Failed to start a new generator journal segment!");
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    private void compactJournal() {
+        // a segment can only go once it's in the database and in the snapshot
+        long before = Math.min(this.flushedSegment, this.snapshotSegment);
+        if (before >= 0) {
+            this.journal.compact(before);
+        }
+    }
+
+    /**
+     * Stop recording the changes, call it after the last flush.
+     */
+    public void closeJournal() {
+        this.store.setChangeListener(null);
+        this.journal.close();
+    }
+
+    private void requestFlush() {
+        // without auto-save every change is written right away, the changes made
+        // before the queued flush starts are written together
+        if (!Settings.AUTO_SAVE_ENABLED && !NextGens.STOPPING && this.flushQueued.compareAndSet(false, true)) {
+            Executor.async(() -> {
+                this.flushQueued.set(false);
+                this.flushActiveGenerators(0);
+            });
+        }
     }
 
     public void loadGenerators() {
@@ -272,6 +675,8 @@ public class GeneratorManager {
             this.loadGenerators(NextGens.GENERATORS_CONFIG.getConfig());
             // send log message
             Logger.info("Successfully loaded " + this.generatorMap.size() + " generators!");
+            // the compiled plans refer to the old generators
+            this.planCache.invalidate();
         } else {
             directory.mkdirs();
             // generate default files
@@ -343,6 +748,16 @@ public class GeneratorManager {
         List<GensRequirement> placeRequirements = this.loadRequirement(section, "place-requirements");
         List<GensRequirement> upgradeRequirements = this.loadRequirement(section, "upgrade-requirements");
 
+        // intern the id, the previous ids keep the placed generators after a rename
+        try {
+            this.registry.intern(id, section.getStringList("previous-ids"));
+        } catch (IllegalStateException ex) {
+            // the placed generators can't be matched to it without a stored type
+            Logger.severe("Failed to store the type of generator '" + id + "', it isn't loaded!");
+            ex.printStackTrace();
+            return;
+        }
+
         Generator generator = new Generator(id, displayName, interval, item, drops, nextTier, upgradeCost,
                 corrupted, fixCost, corruptChance, onlineOnly, placeRequirements, upgradeRequirements);
 
@@ -352,8 +767,12 @@ public class GeneratorManager {
         if (loadEvent.isCancelled()) {
             return;
         }
+        // build the drop sampler and item templates once, the listeners could have added drops
+        generator.compileDrops();
+        generator.compileItems();
         // store it on the map
         this.generatorMap.put(id, generator);
+        this.registry.register(generator);
         // send log message
         Logger.info("Loaded generator '" + id + "'");
     }
@@ -394,6 +813,44 @@ public class GeneratorManager {
                 active.setGenerator(refreshed);
             }
         }
+        // the world multipliers might have been changed
+        this.rescheduleActiveGenerator();
+    }
+
+    /**
+     * Move the generators of the player into the online or offline partition.
+     */
+    public void setOwnerOnline(UUID uuid, boolean online) {
+        this.scheduler.setOnline(uuid, online, this.getOwnedGenerators(uuid));
+    }
+
+    public void rescheduleActiveGenerator() {
+        // compile the plans again with the current config and event
+        this.planCache.invalidate();
+        this.scheduler.rescheduleAll(this.activeGenerators.values());
+    }
+
+    private void index(ActiveGenerator active) {
+        // added inside compute, so it can't race with the set being removed
+        this.ownerIndex.compute(active.getOwner(), (uuid, owned) -> {
+            if (owned == null) {
+                owned = ConcurrentHashMap.newKeySet();
+            }
+            owned.add(active);
+            return owned;
+        });
+        this.grid.add(active);
+    }
+
+    private void unindex(Collection<ActiveGenerator> generators) {
+        for (ActiveGenerator active : generators) {
+            // owners without generators aren't kept around
+            this.ownerIndex.computeIfPresent(active.getOwner(), (uuid, owned) -> {
+                owned.remove(active);
+                return owned.isEmpty() ? null : owned;
+            });
+        }
+        this.grid.removeAll(generators);
     }
 
     private void fixGenerator(ActiveGenerator active) {
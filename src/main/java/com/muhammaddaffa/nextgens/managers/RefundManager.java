@@ -3,22 +3,35 @@ package com.muhammaddaffa.nextgens.managers;
 import com.muhammaddaffa.mdlib.utils.Common;
 import com.muhammaddaffa.mdlib.utils.Config;
 import com.muhammaddaffa.mdlib.utils.Executor;
+import com.muhammaddaffa.mdlib.utils.Logger;
 import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.objects.Generator;
 import com.muhammaddaffa.nextgens.managers.GeneratorManager;
-import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
 import java.util.*;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generator items owed to players that weren't online when their generators were removed.
+ * <p>
+ * The refunds are stored in the database as one row per player and generator id,
+ * new refunds are collected in memory and inserted together.
+ */
 public class RefundManager {
 
-    private final Map<UUID, List<String>> itemMap = new HashMap<>();
+    // uuid -> generator id -> amount, the refunds that haven't been inserted yet
+    private final Map<UUID, Map<String, Integer>> pending = new HashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
     private final GeneratorManager generatorManager;
+    private final DatabaseManager dbm;
 
-    public RefundManager(GeneratorManager generatorManager) {
+    public RefundManager(GeneratorManager generatorManager, DatabaseManager dbm) {
         this.generatorManager = generatorManager;
+        this.dbm = dbm;
     }
 
     /**
@@ -28,10 +41,27 @@ public class RefundManager {
      * @param id   Generator ID
      */
     public void delayedGiveGeneratorItem(UUID uuid, String id) {
-        List<String> generators = itemMap.computeIfAbsent(uuid, k -> new ArrayList<>());
-        generators.add(id);
-        // Update the configuration immediately
-        savePlayerData(uuid);
+        this.delayedGiveGeneratorItem(uuid, Map.of(id, 1));
+    }
+
+    /**
+     * Adds many generators to a player's refund list at once.
+     *
+     * @param uuid     Player's UUID
+     * @param refunds  Generator ID -> amount
+     */
+    public void delayedGiveGeneratorItem(UUID uuid, Map<String, Integer> refunds) {
+        if (refunds.isEmpty()) {
+            return;
+        }
+        this.queue(uuid, refunds);
+        // the refunds added in the same tick are inserted together
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            Executor.async(() -> {
+                this.flushScheduled.set(false);
+                this.flush();
+            });
+        }
     }
 
     /**
@@ -41,86 +71,109 @@ public class RefundManager {
      */
     public void giveItemOnJoin(Player player) {
         UUID playerUUID = player.getUniqueId();
-        List<String> generators = itemMap.remove(playerUUID);
-
-        if (generators == null || generators.isEmpty()) {
-            return;
-        }
-
-        // Give the generators to the player
-        for (String id : generators) {
-            Generator generator = generatorManager.getGenerator(id);
-            if (generator != null) {
-                Common.addInventoryItem(player, generator.createItem(1));
-            } else {
-                NextGens.getInstance().getLogger().warning(
-                        "Generator with ID '" + id + "' not found for player " + player.getName()
-                );
+        Executor.async(() -> {
+            Map<String, Integer> generators = new HashMap<>();
+            // the refunds that haven't been inserted yet are given right away
+            synchronized (this.pending) {
+                Map<String, Integer> pending = this.pending.remove(playerUUID);
+                if (pending != null) {
+                    generators.putAll(pending);
+                }
             }
-        }
-
-        // Remove player's data from config and save
-        Executor.async(() -> removePlayerData(playerUUID));
+            Map<String, Integer> stored = this.dbm.takeRefunds(playerUUID);
+            if (stored != null) {
+                stored.forEach((id, amount) -> generators.merge(id, amount, Integer::sum));
+            }
+            if (generators.isEmpty()) {
+                return;
+            }
+            Executor.sync(() -> {
+                // the player left before the items could be given
+                if (!player.isOnline()) {
+                    this.delayedGiveGeneratorItem(playerUUID, generators);
+                    return;
+                }
+                // Give the generators to the player
+                generators.forEach((id, amount) -> {
+                    Generator generator = this.generatorManager.getGenerator(id);
+                    if (generator != null) {
+                        // hand them out in full stacks
+                        int maxStack = generator.createItem(1).getMaxStackSize();
+                        for (int left = amount; left > 0; left -= maxStack) {
+                            Common.addInventoryItem(player, generator.createItem(Math.min(left, maxStack)));
+                        }
+                    } else {
+                        NextGens.getInstance().getLogger().warning(
+                                "Generator with ID '" + id + "' not found for player " + player.getName()
+                        );
+                    }
+                });
+            });
+        });
     }
 
     /**
-     * Loads refund data from the configuration file into memory.
+     * Moves the refunds of older versions from the data file into the database.
      */
     public void load() {
-        FileConfiguration config = NextGens.DATA_CONFIG.getConfig();
-
-        if (!config.isConfigurationSection("items")) {
+        Config data = NextGens.DATA_CONFIG;
+        FileConfiguration config = data.getConfig();
+        ConfigurationSection section = config.getConfigurationSection("items");
+        if (section == null) {
             return;
         }
 
-        for (String uuidString : config.getConfigurationSection("items").getKeys(false)) {
+        Map<UUID, Map<String, Integer>> refunds = new HashMap<>();
+        for (String uuidString : section.getKeys(false)) {
             UUID uuid = UUID.fromString(uuidString);
-            List<String> generators = config.getStringList("items." + uuidString);
-
-            itemMap.put(uuid, generators);
+            Map<String, Integer> generators = refunds.computeIfAbsent(uuid, k -> new HashMap<>());
+            for (String id : section.getStringList(uuidString)) {
+                generators.merge(id, 1, Integer::sum);
+            }
         }
-    }
-
-    /**
-     * Saves all refund data from memory to the configuration file.
-     */
-    public void saveAll() {
-        Config data = NextGens.DATA_CONFIG;
-        FileConfiguration config = data.getConfig();
-
-        config.set("items", null); // Clear existing data
-
-        itemMap.forEach((uuid, generators) -> config.set("items." + uuid.toString(), generators));
-
+        // the refunds of this file get their own id, saved before they're imported. the id is recorded
+        // with the refunds, so if the server stops before data.yml is cleared they aren't added twice.
+        // the id doesn't depend on the refunds, another server or a new data.yml always gets its own
+        String migration = config.getString("items-migration");
+        if (migration == null) {
+            migration = "data-yml-refunds-" + UUID.randomUUID();
+            config.set("items-migration", migration);
+            data.saveConfig();
+        }
+        // keep the data file if the database can't take them
+        if (!this.dbm.migrateRefunds(migration, refunds)) {
+            Logger.severe("Failed to move the refunds into the database, they're kept in data.yml!");
+            return;
+        }
+        config.set("items", null);
+        config.set("items-migration", null);
         data.saveConfig();
+        Logger.info("Moved the refunds of " + refunds.size() + " players into the database!");
     }
 
     /**
-     * Saves a specific player's refund data to the configuration file.
-     *
-     * @param uuid Player's UUID
+     * Inserts the pending refunds into the database in a single transaction.
      */
-    private void savePlayerData(UUID uuid) {
-        Config data = NextGens.DATA_CONFIG;
-        FileConfiguration config = data.getConfig();
-
-        config.set("items." + uuid.toString(), itemMap.get(uuid));
-
-        data.saveConfig();
+    public void flush() {
+        Map<UUID, Map<String, Integer>> refunds;
+        synchronized (this.pending) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            refunds = new HashMap<>(this.pending);
+            this.pending.clear();
+        }
+        if (!this.dbm.addRefunds(refunds)) {
+            // try again with the next refund
+            refunds.forEach(this::queue);
+        }
     }
 
-    /**
-     * Removes a specific player's refund data from the configuration file.
-     *
-     * @param uuid Player's UUID
-     */
-    private void removePlayerData(UUID uuid) {
-        Config data = NextGens.DATA_CONFIG;
-        FileConfiguration config = data.getConfig();
-
-        config.set("items." + uuid.toString(), null);
-
-        data.saveConfig();
+    private void queue(UUID uuid, Map<String, Integer> refunds) {
+        synchronized (this.pending) {
+            Map<String, Integer> generators = this.pending.computeIfAbsent(uuid, k -> new HashMap<>());
+            refunds.forEach((id, amount) -> generators.merge(id, amount, Integer::sum));
+        }
     }
 
 }
@@ -0,0 +1,149 @@
+package com.muhammaddaffa.nextgens.managers;
+
+import com.muhammaddaffa.mdlib.utils.Logger;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every SQLite write on a single thread and connection, SQLite only allows one writer
+ * at a time anyway, so writes from a pool would just wait on the file lock.
+ * <p>
+ * Writes that are queued while a commit is running are committed together in the next transaction.
+ */
+public class SQLiteWriter {
+
+    private static final int MAX_GROUP_SIZE = 64;
+
+    private final HikariDataSource dataSource;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    // guards the running flag, so nothing is queued once the writer is closing
+    private final Object lock = new Object();
+    private volatile boolean running = true;
+    // the connection of the running transaction, only used on the writer thread
+    private Connection current;
+
+    public SQLiteWriter(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.thread = new Thread(this::run, "NextGens Database Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Run the work in a transaction on the writer thread and wait until it has been committed.
+     *
+     * @return the exception if the work failed, or null if it has been committed
+     */
+    public SQLException write(DatabaseManager.QueryConsumer<Connection> work) {
+        // a write that is started by another write joins its transaction
+        if (Thread.currentThread() == this.thread) {
+            try {
+                work.accept(this.current);
+                return null;
+            } catch (SQLException ex) {
+                return ex;
+            }
+        }
+        Write write = new Write(work, new CompletableFuture<>());
+        synchronized (this.lock) {
+            if (!this.running) {
+                return new SQLException("The database writer has been closed!");
+            }
+            this.queue.add(write);
+        }
+        return write.result().join();
+    }
+
+    /**
+     * Commit the queued writes and stop the writer thread.
+     */
+    public void close() {
+        synchronized (this.lock) {
+            this.running = false;
+        }
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // the writer thread didn't finish in time, never leave the callers waiting
+        Write write;
+        while ((write = this.queue.poll()) != null) {
+            write.result().complete(new SQLException("The database writer has been closed!"));
+        }
+        this.dataSource.close();
+    }
+
+    private void run() {
+        List<Write> group = new ArrayList<>();
+        while (this.running || !this.queue.isEmpty()) {
+            Write first;
+            try {
+                first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            group.add(first);
+            this.queue.drainTo(group, MAX_GROUP_SIZE - 1);
+            this.commit(group);
+            group.clear();
+        }
+    }
+
+    private void commit(List<Write> group) {
+        try (Connection connection = this.dataSource.getConnection()) {
+            this.current = connection;
+            connection.setAutoCommit(false);
+            try {
+                SQLException failure = this.execute(connection, group);
+                if (failure == null) {
+                    group.forEach(write -> write.result().complete(null));
+                    return;
+                }
+                if (group.size() == 1) {
+                    group.get(0).result().complete(failure);
+                    return;
+                }
+                // one of the writes failed, run them one by one so the others aren't lost
+                for (Write write : group) {
+                    write.result().complete(this.execute(connection, List.of(write)));
+                }
+            } finally {
+                connection.setAutoCommit(true);
+                this.current = null;
+            }
+        } catch (SQLException ex) {
+            Logger.severe("Failed to get the database writer connection!");
+            ex.printStackTrace();
+            group.forEach(write -> write.result().complete(ex));
+        }
+    }
+
+    private SQLException execute(Connection connection, List<Write> writes) throws SQLException {
+        try {
+            for (Write write : writes) {
+                write.work().accept(connection);
+            }
+            connection.commit();
+            return null;
+        } catch (SQLException | RuntimeException ex) {
+            connection.rollback();
+            return ex instanceof SQLException sql ? sql : new SQLException(ex);
+        }
+    }
+
+    private record Write(DatabaseManager.QueryConsumer<Connection> work, CompletableFuture<SQLException> result) {}
+
+}
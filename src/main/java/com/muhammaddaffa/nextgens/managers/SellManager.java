@@ -2,7 +2,6 @@ package com.muhammaddaffa.nextgens.managers;
 
 import com.muhammaddaffa.mdlib.hooks.VaultEconomy;
 import com.muhammaddaffa.mdlib.utils.Common;
-import com.muhammaddaffa.mdlib.utils.Executor;
 import com.muhammaddaffa.mdlib.utils.Placeholder;
 import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.api.GeneratorAPI;
@@ -101,8 +100,8 @@ public class SellManager {
             user.addNormalSell(1);
         }
 
-        // Save user data asynchronously
-        Executor.async(() -> NextGens.getInstance().getUserRepository().saveUser(user));
+        // Queue the user data, it's saved on the next flush
+        NextGens.getInstance().getUserSaveQueue().markDirty(user);
 
         return data;
     }
@@ -1,7 +1,11 @@
 package com.muhammaddaffa.nextgens.managers;
 
+import com.muhammaddaffa.mdlib.utils.Executor;
 import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.objects.User;
+import com.muhammaddaffa.nextgens.users.UserSaveQueue;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.PermissionAttachmentInfo;
@@ -10,11 +14,21 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Holds the users of the online players, and a bounded cache of offline users that have been used recently.
+ * Users are loaded when the player joins, see {@link com.muhammaddaffa.nextgens.users.UserRepository#getUserAsync(UUID)}
+ * for offline players.
+ */
 public class UserManager {
 
     private final Map<UUID, User> userMap = new ConcurrentHashMap<>();
+    // when the user has been used the last time, the offline users that haven't been used for a while are evicted
+    private final Map<UUID, Long> lastAccess = new ConcurrentHashMap<>();
+    // users created for online players whose data hasn't been loaded, they're never saved
+    private final Set<User> placeholders = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
     @Nullable
     public User getUser(String name) {
@@ -24,14 +38,68 @@ public class UserManager {
                 .orElse(null);
     }
 
+    /**
+     * Get the user of an online player. The user is loaded before the player joins, if it's missing anyway
+     * an empty placeholder is returned, it's replaced once the user is loaded and it's never saved.
+     */
     @NotNull
     public User getUser(Player player) {
-        return getUser(player.getUniqueId());
+        UUID uuid = player.getUniqueId();
+        this.lastAccess.put(uuid, System.currentTimeMillis());
+        return userMap.computeIfAbsent(uuid, k -> {
+            User user = new User(k);
+            this.placeholders.add(user);
+            return user;
+        });
     }
 
-    @NotNull
+    /**
+     * @return the user if it's in memory, never creates one
+     * @see com.muhammaddaffa.nextgens.users.UserRepository#getUserAsync(UUID)
+     */
+    @Nullable
     public User getUser(UUID uuid) {
-        return userMap.computeIfAbsent(uuid, User::new);
+        return this.getCachedUser(uuid);
+    }
+
+    /**
+     * @return the user if it's in memory, never creates one
+     */
+    @Nullable
+    public User getCachedUser(UUID uuid) {
+        User user = userMap.get(uuid);
+        if (user != null) {
+            this.lastAccess.put(uuid, System.currentTimeMillis());
+        }
+        return user;
+    }
+
+    /**
+     * @return true if the user is in memory and has been read from the database
+     */
+    public boolean isLoaded(UUID uuid) {
+        User user = userMap.get(uuid);
+        return user != null && this.isLoaded(user);
+    }
+
+    /**
+     * @return false if the user is a placeholder, saving it would overwrite the stored data
+     */
+    public boolean isLoaded(User user) {
+        return !this.placeholders.contains(user);
+    }
+
+    /**
+     * Keep the loaded user, unless a loaded user is already in memory, the one in memory could have unsaved changes.
+     * A placeholder is replaced by the loaded user.
+     *
+     * @return the user that is kept
+     */
+    @NotNull
+    public User cacheUser(User user) {
+        UUID uuid = user.getUniqueId();
+        this.lastAccess.put(uuid, System.currentTimeMillis());
+        return userMap.compute(uuid, (k, existing) -> existing == null || this.placeholders.remove(existing) ? user : existing);
     }
 
     public Collection<User> getUsers() {
@@ -49,7 +117,56 @@ public class UserManager {
     }
 
     public void removeUser(UUID uuid) {
-        userMap.remove(uuid);
+        User user = userMap.remove(uuid);
+        if (user != null) {
+            placeholders.remove(user);
+        }
+        lastAccess.remove(uuid);
+    }
+
+    public void startTask(UserSaveQueue saveQueue) {
+        Executor.syncTimer(1200L, 1200L, () -> this.evict(saveQueue));
+    }
+
+    /**
+     * Remove the offline users that haven't been used for a while, and the least recently used ones
+     * if there are too many. Users with unsaved changes are kept until they're saved.
+     *
+     * @return how many users have been evicted
+     */
+    public int evict(UserSaveQueue saveQueue) {
+        long expired = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(Math.max(0, Settings.USER_CACHE_EXPIRE));
+        int evicted = 0;
+        List<User> cached = new ArrayList<>();
+        for (User user : userMap.values()) {
+            UUID uuid = user.getUniqueId();
+            if (Bukkit.getPlayer(uuid) != null || saveQueue.isDirty(uuid)) {
+                continue;
+            }
+            if (this.lastAccess.getOrDefault(uuid, 0L) < expired) {
+                evicted += this.evict(user) ? 1 : 0;
+                continue;
+            }
+            cached.add(user);
+        }
+        // too many recently used ones, the least recently used go first
+        int excess = cached.size() - Math.max(0, Settings.USER_CACHE_MAX_SIZE);
+        if (excess > 0) {
+            cached.sort(Comparator.comparingLong(user -> this.lastAccess.getOrDefault(user.getUniqueId(), 0L)));
+            for (int i = 0; i < excess; i++) {
+                evicted += this.evict(cached.get(i)) ? 1 : 0;
+            }
+        }
+        return evicted;
+    }
+
+    private boolean evict(User user) {
+        if (!userMap.remove(user.getUniqueId(), user)) {
+            return false;
+        }
+        placeholders.remove(user);
+        lastAccess.remove(user.getUniqueId());
+        return true;
     }
 
     public int getMaxSlot(Player player) {
@@ -1,18 +1,35 @@
 package com.muhammaddaffa.nextgens.objects;
 
+import com.muhammaddaffa.nextgens.generators.scheduler.GeneratorScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.UUID;
 
 public class ActiveGenerator {
 
-    private final UUID owner;
-    private final Location location;
-    private Generator generator;
-    private double timer;
-    private boolean corrupted;
+    // own state, only used while the generator isn't part of a store
+    UUID owner;
+    transient BlockKey key;
+    Location location;
+    Generator generator;
+    double timer;
+    boolean corrupted;
+    // seconds the generator has been idle in an unloaded chunk, owed until they're paid out
+    double idle;
+
+    // the row that holds the state while the generator is registered
+    transient volatile GeneratorStore store;
+    transient int index = -1;
+    // the interned type of the row, only written by the store
+    transient volatile int type = -1;
+
+    // scheduling state, present while the generator is managed by the scheduler
+    private transient GeneratorScheduler.Slot slot;
+    // true while a drop of this generator is waiting on the main thread
+    private transient boolean inFlight;
 
     public ActiveGenerator(UUID owner, Location location, Generator generator) {
         this.owner = owner;
@@ -21,61 +38,249 @@ public class ActiveGenerator {
     }
 
     public ActiveGenerator(UUID owner, Location location, Generator generator, double timer, boolean corrupted) {
+        this(owner, location, generator, timer, corrupted, 0);
+    }
+
+    public ActiveGenerator(UUID owner, Location location, Generator generator, double timer, boolean corrupted,
+                           double idle) {
         this.owner = owner;
         this.location = location;
         this.generator = generator;
         this.timer = timer;
         this.corrupted = corrupted;
+        this.idle = idle;
     }
 
     public UUID getOwner() {
-        return owner;
+        while (true) {
+            UUID owner = this.owner;
+            if (owner != null) {
+                return owner;
+            }
+            // null if the generator has been unbound in the meantime, its own state is back then
+            GeneratorStore store = this.store;
+            if (store != null && (owner = store.getOwner(this)) != null) {
+                return owner;
+            }
+        }
     }
 
     public String getOwnerName() {
-        return Bukkit.getOfflinePlayer(this.owner).getName();
+        return Bukkit.getOfflinePlayer(this.getOwner()).getName();
     }
 
     public Location getLocation() {
-        return location;
+        Location location = this.location;
+        if (location != null) {
+            return location;
+        }
+        BlockKey key = this.getKey();
+        return key == null ? null : key.toLocation();
+    }
+
+    /**
+     * @return the block key of the generator, or null if the world of the location doesn't exist
+     */
+    @Nullable
+    public BlockKey getKey() {
+        while (true) {
+            GeneratorStore store = this.store;
+            if (store == null) {
+                BlockKey key = this.localKey();
+                // the generator could have been bound while the key was computed
+                if (this.store == null) {
+                    return key;
+                }
+                continue;
+            }
+            BlockKey key = store.getKey(this);
+            if (key != null) {
+                return key;
+            }
+        }
+    }
+
+    BlockKey localKey() {
+        if (this.key == null && this.location != null && this.location.getWorld() != null) {
+            this.key = BlockKey.of(this.location);
+        }
+        return key;
     }
 
     public Generator getGenerator() {
+        GeneratorStore store = this.store;
+        if (store != null) {
+            return store.getGenerator(this);
+        }
         return generator;
     }
 
     public void setGenerator(Generator generator) {
-        this.generator = generator;
+        GeneratorStore store = this.store;
+        if (store == null || !store.setGenerator(this, generator)) {
+            this.generator = generator;
+        }
+        // the interval might be different now
+        GeneratorScheduler.Slot slot = this.slot;
+        if (slot != null) {
+            slot.reschedule();
+        }
     }
 
     public double getTimer() {
+        GeneratorScheduler.Slot slot = this.slot;
+        if (slot != null) {
+            return slot.getTimer();
+        }
+        GeneratorStore store = this.store;
+        if (store != null) {
+            return store.getTimer(this);
+        }
         return timer;
     }
 
     public void setTimer(double timer) {
-        this.timer = timer;
+        GeneratorScheduler.Slot slot = this.slot;
+        if (slot != null) {
+            slot.setTimer(timer);
+            return;
+        }
+        GeneratorStore store = this.store;
+        if (store == null || !store.setTimer(this, timer)) {
+            this.timer = timer;
+        }
     }
 
     public void addTimer(double amount) {
-        this.timer += amount;
+        this.setTimer(this.getTimer() + amount);
+    }
+
+    /**
+     * @return how many seconds of idle time are owed to the generator
+     */
+    public double getIdleTime() {
+        GeneratorScheduler.Slot slot = this.slot;
+        if (slot != null) {
+            return slot.getIdleTime();
+        }
+        GeneratorStore store = this.store;
+        if (store != null) {
+            return store.getIdleTime(this);
+        }
+        return idle;
+    }
+
+    public void setIdleTime(double idle) {
+        GeneratorScheduler.Slot slot = this.slot;
+        if (slot != null) {
+            slot.setIdleTime(idle);
+            return;
+        }
+        GeneratorStore store = this.store;
+        if (store == null || !store.setIdleTime(this, idle)) {
+            this.idle = idle;
+        }
     }
 
     public boolean isCorrupted() {
+        GeneratorStore store = this.store;
+        if (store != null) {
+            int corrupted = store.isCorrupted(this);
+            if (corrupted >= 0) {
+                return corrupted == 1;
+            }
+        }
         return corrupted;
     }
 
     public void setCorrupted(boolean corrupted) {
-        this.corrupted = corrupted;
+        GeneratorStore store = this.store;
+        if (store == null || !store.setCorrupted(this, corrupted)) {
+            this.corrupted = corrupted;
+        }
+        // corrupted generators are taken off the scheduler
+        GeneratorScheduler.Slot slot = this.slot;
+        if (slot != null) {
+            slot.updateCorruption();
+        }
+    }
+
+    /**
+     * Called by the scheduler whenever the progress of the generator changes, the row of the generator keeps it
+     * so its current timer can be read without the scheduler lock.
+     */
+    public void publishProgress(double timer, long timerTick, double interval, boolean running, long idleSince,
+                                double idleSeconds) {
+        GeneratorStore store = this.store;
+        if (store != null) {
+            store.setProgress(this, timer, timerTick, interval, running, idleSince, idleSeconds);
+        }
+    }
+
+    public GeneratorScheduler.Slot getSlot() {
+        return slot;
+    }
+
+    public void setSlot(GeneratorScheduler.Slot slot) {
+        this.slot = slot;
+    }
+
+    public synchronized boolean markInFlight() {
+        if (this.inFlight) {
+            return false;
+        }
+        this.inFlight = true;
+        return true;
+    }
+
+    public synchronized void clearInFlight() {
+        this.inFlight = false;
+    }
+
+    public synchronized boolean isInFlight() {
+        return inFlight;
     }
 
     public boolean isChunkLoaded() {
-        int x = this.location.getBlockX() >> 4;
-        int z = this.location.getBlockZ() >> 4;
-        World world = this.location.getWorld();
+        BlockKey key = this.getKey();
+        if (key == null) {
+            return false;
+        }
+        World world = key.getWorld();
         if (world == null) {
             return false;
         }
-        return world.isChunkLoaded(x, z);
+        return world.isChunkLoaded(key.getChunkX(), key.getChunkZ());
+    }
+
+    /**
+     * Called by the store once the state has been moved into its row.
+     */
+    void attach(GeneratorStore store, int index, int type) {
+        this.index = index;
+        this.type = type;
+        this.store = store;
+        // drop the references, the row holds them now
+        this.owner = null;
+        this.key = null;
+        this.location = null;
+        this.generator = null;
+    }
+
+    /**
+     * Called by the store before the row is freed, the state is moved back into the generator.
+     */
+    void detach(UUID owner, BlockKey key, Location location, Generator generator, double timer, boolean corrupted,
+                double idle) {
+        this.owner = owner;
+        this.key = key;
+        this.location = location;
+        this.generator = generator;
+        this.timer = timer;
+        this.corrupted = corrupted;
+        this.idle = idle;
+        this.store = null;
+        this.index = -1;
     }
 
 }
@@ -0,0 +1,122 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Immutable identity of a block, the world is interned into a small id
+ * and the coordinates are packed into a single long.
+ * <p>
+ * The packing uses 26 bits for x and z, and 12 bits for y.
+ */
+public record BlockKey(int world, long position) {
+
+    private static final Map<String, Integer> WORLD_IDS = new ConcurrentHashMap<>();
+    private static final List<String> WORLD_NAMES = new CopyOnWriteArrayList<>();
+
+    @NotNull
+    public static BlockKey of(@NotNull Block block) {
+        return of(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    @NotNull
+    public static BlockKey of(@NotNull Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            throw new IllegalArgumentException("Location doesn't have a world!");
+        }
+        return of(world, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    @NotNull
+    public static BlockKey of(@NotNull World world, int x, int y, int z) {
+        return new BlockKey(worldId(world.getName()), pack(x, y, z));
+    }
+
+    public static int worldId(@NotNull String worldName) {
+        Integer id = WORLD_IDS.get(worldName);
+        if (id != null) {
+            return id;
+        }
+        synchronized (WORLD_NAMES) {
+            return WORLD_IDS.computeIfAbsent(worldName, name -> {
+                WORLD_NAMES.add(name);
+                return WORLD_NAMES.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * @return the name of the interned world id
+     */
+    @NotNull
+    public static String worldName(int worldId) {
+        return WORLD_NAMES.get(worldId);
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
+    }
+
+    public static int unpackX(long position) {
+        return (int) (position >> 38);
+    }
+
+    public static int unpackY(long position) {
+        return (int) (position << 52 >> 52);
+    }
+
+    public static int unpackZ(long position) {
+        return (int) (position << 26 >> 38);
+    }
+
+    public int getX() {
+        return unpackX(this.position);
+    }
+
+    public int getY() {
+        return unpackY(this.position);
+    }
+
+    public int getZ() {
+        return unpackZ(this.position);
+    }
+
+    public int getChunkX() {
+        return this.getX() >> 4;
+    }
+
+    public int getChunkZ() {
+        return this.getZ() >> 4;
+    }
+
+    @NotNull
+    public String getWorldName() {
+        return WORLD_NAMES.get(this.world);
+    }
+
+    @Nullable
+    public World getWorld() {
+        return Bukkit.getWorld(this.getWorldName());
+    }
+
+    @NotNull
+    public Location toLocation() {
+        return new Location(this.getWorld(), this.getX(), this.getY(), this.getZ());
+    }
+
+    @Override
+    public String toString() {
+        return this.getWorldName() + "," + this.getX() + "," + this.getY() + "," + this.getZ();
+    }
+
+}
@@ -14,6 +14,7 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -25,6 +26,9 @@ public record Drop(
         List<String> commands
 ) {
 
+    // the item templates are kept out of the components, so they don't take part in the equality
+    private static final RecordCache<Drop, ItemTemplate> TEMPLATES = new RecordCache<>(ItemTemplate::new);
+
     public static Drop fromConfig(String id, String key, ConfigurationSection section) {
         double chance = section.getDouble("chance");
         Double sellValue = section.get("sell-value") == null ? null : section.getDouble("sell-value");
@@ -37,11 +41,28 @@ public record Drop(
         return new Drop(id + "_" + key, chance, stack, sellValue, commands);
     }
 
+    /**
+     * @deprecated the drops are picked by the {@link DropSampler} of the generator, use {@link Generator#getRandomDrop()}
+     */
+    @Deprecated
     public boolean shouldUse() {
         return ThreadLocalRandom.current().nextDouble(101) <= this.chance();
     }
 
     public ItemStack getItem() {
+        return TEMPLATES.get(this.id, this).create(this::buildItem);
+    }
+
+    /**
+     * Build the item template once, it's built lazily otherwise.
+     */
+    public void compileItem() {
+        if (this.item() != null) {
+            TEMPLATES.get(this.id, this).compile(this::buildItem);
+        }
+    }
+
+    private ItemStack buildItem() {
         // create the proper item first
         ItemBuilder builder = new ItemBuilder(this.item().clone());
         // add the drop value
@@ -52,12 +73,33 @@ public record Drop(
     }
 
     public void spawn(Block block, @Nullable OfflinePlayer player, boolean shouldItemDrop) {
+        this.spawn(block, player, shouldItemDrop, 1);
+    }
+
+    /**
+     * Spawn the drop the given amount of times at once, the items are merged into as few
+     * stacks as possible and the commands are executed once with the {amount} placeholder.
+     */
+    public void spawn(Block block, @Nullable OfflinePlayer player, boolean shouldItemDrop, int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        this.spawn(block, player, shouldItemDrop ? this.createItems(amount) : List.of(), amount);
+    }
+
+    /**
+     * Spawn the given items of the drop, and execute the commands once for the whole amount.
+     * The items can be less than the amount, when a part of them has been sold already.
+     */
+    public void spawn(Block block, @Nullable OfflinePlayer player, List<ItemStack> items, int amount) {
+        if (amount <= 0) {
+            return;
+        }
         // get the drop location
         Location dropLocation = block.getLocation().add(0.5, 1, 0.5);
-        // drop the item if it's exist
-        if (this.item() != null && shouldItemDrop) {
+        for (ItemStack stack : items) {
             // finally, drop the item
-            Item item = block.getWorld().dropItem(dropLocation, this.getItem());
+            Item item = block.getWorld().dropItem(dropLocation, stack);
             // remove the velocity
             item.setVelocity(new Vector(0, 0, 0));
         }
@@ -67,11 +109,34 @@ public record Drop(
                 .add("{y}", dropLocation.getBlockY())
                 .add("{z}", dropLocation.getBlockZ())
                 .add("{world}", dropLocation.getWorld().getName())
-                .add("{world_lower}", dropLocation.getWorld().getName().toLowerCase());
+                .add("{world_lower}", dropLocation.getWorld().getName().toLowerCase())
+                .add("{amount}", amount);
         if (player != null) {
             placeholder.add("{player}", player.getName());
         }
         this.commands.forEach(command -> Bukkit.dispatchCommand(Bukkit.getConsoleSender(), placeholder.translate(command)));
     }
 
+    /**
+     * Create the items of the drop generated the given amount of times,
+     * split only when the max stack size is reached.
+     */
+    public List<ItemStack> createItems(int amount) {
+        List<ItemStack> stacks = new ArrayList<>();
+        if (this.item() == null || amount <= 0) {
+            return stacks;
+        }
+        ItemStack template = this.getItem();
+        int maxStackSize = Math.max(1, template.getMaxStackSize());
+        long remaining = (long) template.getAmount() * amount;
+        while (remaining > 0) {
+            ItemStack stack = stacks.isEmpty() ? template : template.clone();
+            int size = (int) Math.min(maxStackSize, remaining);
+            stack.setAmount(size);
+            stacks.add(stack);
+            remaining -= size;
+        }
+        return stacks;
+    }
+
 }
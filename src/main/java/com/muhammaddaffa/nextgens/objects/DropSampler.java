@@ -0,0 +1,164 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted drop sampler using Vose's alias method, a sample costs one slot pick and one coin flip
+ * no matter how many drops the generator has.
+ * <p>
+ * The chance of every drop is its weight, the remaining chance up to 100 is an explicit "no drop" slot.
+ * If the chances add up to more than 100 they are normalized and there is no empty slot.
+ */
+public final class DropSampler {
+
+    private volatile Table table;
+
+    /**
+     * Build the alias table for the drops, replacing the previous one.
+     */
+    public void compile(List<Drop> drops) {
+        List<Drop> weighted = new ArrayList<>();
+        double total = 0;
+        for (Drop drop : drops) {
+            if (drop.chance() > 0) {
+                weighted.add(drop);
+                total += drop.chance();
+            }
+        }
+        // the last slot is the "no drop" slot
+        int size = weighted.size() + 1;
+        double[] weights = new double[size];
+        for (int i = 0; i < weighted.size(); i++) {
+            weights[i] = weighted.get(i).chance();
+        }
+        weights[size - 1] = Math.max(0, 100 - total);
+        double sum = total + weights[size - 1];
+
+        double[] probability = new double[size];
+        int[] alias = new int[size];
+        double[] share = new double[weighted.size()];
+        if (sum <= 0) {
+            // nothing can ever drop
+            probability[size - 1] = 1;
+            for (int i = 0; i < size; i++) {
+                alias[i] = size - 1;
+            }
+            this.table = new Table(weighted.toArray(new Drop[0]), probability, alias, share);
+            return;
+        }
+        for (int i = 0; i < share.length; i++) {
+            share[i] = weights[i] / sum;
+        }
+
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        double[] scaled = new double[size];
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / sum;
+            if (scaled[i] < 1) {
+                small.add(i);
+            } else {
+                large.add(i);
+            }
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.poll();
+            int more = large.poll();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            // move the excess of the larger slot into the smaller one
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small.add(more);
+            } else {
+                large.add(more);
+            }
+        }
+        // whatever is left is full, up to rounding errors
+        while (!large.isEmpty()) {
+            probability[large.poll()] = 1;
+        }
+        while (!small.isEmpty()) {
+            probability[small.poll()] = 1;
+        }
+        this.table = new Table(weighted.toArray(new Drop[0]), probability, alias, share);
+    }
+
+    /**
+     * Forget the compiled table, it will be compiled again on the next sample.
+     */
+    public void invalidate() {
+        this.table = null;
+    }
+
+    public boolean isCompiled() {
+        return this.table != null;
+    }
+
+    /**
+     * @return a random drop, or null if the "no drop" slot was picked
+     */
+    @Nullable
+    public Drop sample(List<Drop> drops) {
+        Table table = this.table;
+        if (table == null) {
+            this.compile(drops);
+            table = this.table;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int slot = random.nextInt(table.probability.length);
+        if (random.nextDouble() >= table.probability[slot]) {
+            slot = table.alias[slot];
+        }
+        return slot < table.drops.length ? table.drops[slot] : null;
+    }
+
+    /**
+     * Roll the drops for many samples in one step, every drop gets its expected share of the samples
+     * and the fraction that is left over is rounded up randomly, so the result stays fair over time.
+     * <p>
+     * The result is a list in the order of the drops, so the drops are never hashed.
+     *
+     * @return how many times every drop has been picked, drops that weren't picked are left out
+     */
+    public List<Roll> sample(List<Drop> drops, long samples) {
+        Table table = this.table;
+        if (table == null) {
+            this.compile(drops);
+            table = this.table;
+        }
+        List<Roll> result = new ArrayList<>();
+        if (samples <= 0) {
+            return result;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < table.drops.length; i++) {
+            double expected = table.share[i] * samples;
+            long amount = (long) expected;
+            // round the fraction randomly
+            if (random.nextDouble() < expected - amount) {
+                amount++;
+            }
+            if (amount > 0) {
+                result.add(new Roll(table.drops[i], amount));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A drop and how many times it has been picked.
+     */
+    public record Roll(Drop drop, long amount) {}
+
+    private record Table(
+            Drop[] drops,
+            double[] probability,
+            int[] alias,
+            double[] share
+    ) {}
+
+}
@@ -3,6 +3,7 @@ package com.muhammaddaffa.nextgens.objects;
 import com.muhammaddaffa.mdlib.utils.ItemBuilder;
 import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.requirements.GensRequirement;
+import com.muhammaddaffa.nextgens.utils.Settings;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
@@ -27,6 +28,10 @@ public record Generator(
         List<GensRequirement> upgradeRequirements
 ) {
 
+    // the drop samplers and item templates are kept out of the components, so they don't take part in the equality
+    private static final RecordCache<Generator, DropSampler> SAMPLERS = new RecordCache<>(DropSampler::new);
+    private static final RecordCache<Generator, ItemTemplate> TEMPLATES = new RecordCache<>(ItemTemplate::new);
+
     public List<String> checkRequirements(Player player, List<GensRequirement> requirements) {
         List<String> messages = new ArrayList<>();
         for (GensRequirement requirement : requirements) {
@@ -37,12 +42,43 @@ public record Generator(
         return messages;
     }
 
+    /**
+     * @return whether the generator only works while its owner is online, falls back to the global option
+     */
+    public boolean isOnlineOnly() {
+        if (this.onlineOnly == null) {
+            return Settings.ONLINE_ONLY;
+        }
+        return this.onlineOnly;
+    }
+
+    @Nullable
     public Drop getRandomDrop() {
-        for (Drop drop : this.drops)
-            if (drop.shouldUse())
-                return drop;
+        return this.getSampler().sample(this.drops);
+    }
+
+    /**
+     * Roll the drops of many drop cycles at once.
+     *
+     * @return how many times every drop has been picked, in the order of the drops
+     */
+    public List<DropSampler.Roll> getRandomDrops(long cycles) {
+        return this.getSampler().sample(this.drops, cycles);
+    }
+
+    /**
+     * Build the drop sampler from the current drops, it's built lazily otherwise.
+     */
+    public void compileDrops() {
+        this.getSampler().compile(this.drops);
+    }
 
-        return null;
+    /**
+     * Build the item templates of the generator and its drops, they're built lazily otherwise.
+     */
+    public void compileItems() {
+        TEMPLATES.get(this.id, this).compile(this::buildItem);
+        this.drops.forEach(Drop::compileItem);
     }
 
     @Nullable
@@ -54,18 +90,28 @@ public record Generator(
     }
 
     public ItemStack createItem(int amount) {
-        ItemBuilder builder = new ItemBuilder(this.item().clone());
-        // apply data to the item
-        builder.pdc(NextGens.generator_id, this.id());
+        ItemStack stack = TEMPLATES.get(this.id, this).create(this::buildItem);
         // set the amount
-        ItemStack stack = builder.build();
         stack.setAmount(Math.max(1, amount));
 
         return stack;
     }
 
+    private ItemStack buildItem() {
+        ItemBuilder builder = new ItemBuilder(this.item().clone());
+        // apply data to the item
+        builder.pdc(NextGens.generator_id, this.id());
+        return builder.build();
+    }
+
     public void addDrop(Drop drop) {
         this.drops.add(drop);
+        // the sampler has to include the new drop
+        this.getSampler().invalidate();
+    }
+
+    private DropSampler getSampler() {
+        return SAMPLERS.get(this.id, this);
     }
 
 }
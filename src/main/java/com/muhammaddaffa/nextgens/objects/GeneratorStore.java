@@ -0,0 +1,592 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
+import com.muhammaddaffa.nextgens.generators.scheduler.GeneratorScheduler;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the state of every registered generator in parallel primitive arrays, instead of
+ * scattering it around the heap as separate objects with their own location and world.
+ * <p>
+ * A registered {@link ActiveGenerator} is only a thin view of its row in the store, the owner,
+ * the block and the scheduling progress are all kept in the row. Removed rows are put on a
+ * free-list and reused by the next generator.
+ * <p>
+ * Adding and removing rows locks the whole store, a single row is only locked by its stripe,
+ * so the views of different rows don't wait for each other.
+ */
+public final class GeneratorStore {
+
+    private static final byte USED = 1;
+    private static final byte CORRUPTED = 1 << 1;
+    // the timer is counting on the scheduler, it's the timer at the timer tick plus the ticks since
+    private static final byte RUNNING = 1 << 2;
+    private static final int STRIPES = 64;
+
+    // interned world ids and packed block positions
+    private int[] worlds;
+    private long[] positions;
+    private long[] ownerMost;
+    private long[] ownerLeast;
+    // interned generator ids, -1 if the generator is missing
+    private int[] types;
+    private double[] timers;
+    private long[] timerTicks;
+    private double[] intervals;
+    // owed idle time, see ActiveGenerator#getIdleTime(), and the moment it started counting or 0
+    private double[] idles;
+    private long[] idleSinces;
+    private byte[] flags;
+    private ActiveGenerator[] views;
+    private int[] nextFree;
+    // rows changed since they have been saved, the timer alone doesn't count as a change.
+    // a flush only visits these rows instead of scanning the whole store, guarded by itself
+    private final BitSet dirty = new BitSet();
+
+    // the write lock is taken to add or remove rows, everything else only takes the read lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object[] stripes = new Object[STRIPES];
+
+    // rows below this index have been used at least once
+    private int highest;
+    private int freeHead = -1;
+    private volatile int size;
+
+    private final GeneratorRegistry registry;
+    private volatile ChangeListener changeListener;
+
+    public GeneratorStore(GeneratorRegistry registry) {
+        this(registry, 1024);
+    }
+
+    public GeneratorStore(GeneratorRegistry registry, int capacity) {
+        this.registry = registry;
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Object();
+        }
+        this.resize(Math.max(16, capacity));
+    }
+
+    /**
+     * Move the state of the generator into the store, the generator becomes a view of its row.
+     *
+     * @param dirty whether the generator still has to be saved
+     */
+    public void bind(ActiveGenerator active, boolean dirty) {
+        // resolve the type before taking the lock, it might have to be interned
+        Generator generator = active.generator;
+        int type = generator == null ? -1 : this.registry.typeOf(generator);
+        int index;
+        this.lock.writeLock().lock();
+        try {
+            index = this.bind(active, type);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        if (index >= 0 && dirty) {
+            this.markDirty(active);
+        }
+    }
+
+    /**
+     * @return the row of the generator, or -1 if it was stored already
+     */
+    private int bind(ActiveGenerator active, int type) {
+        if (active.store == this) {
+            return -1;
+        }
+        if (active.store != null) {
+            throw new IllegalStateException("The generator is already stored somewhere else");
+        }
+        BlockKey key = active.localKey();
+        if (key == null) {
+            throw new IllegalArgumentException("The world of the generator doesn't exist");
+        }
+        int index = this.allocate();
+        this.worlds[index] = key.world();
+        this.positions[index] = key.position();
+        this.ownerMost[index] = active.owner.getMostSignificantBits();
+        this.ownerLeast[index] = active.owner.getLeastSignificantBits();
+        this.types[index] = type;
+        this.timers[index] = active.timer;
+        this.timerTicks[index] = 0;
+        this.intervals[index] = 0;
+        this.idles[index] = active.idle;
+        this.idleSinces[index] = 0;
+        this.flags[index] = active.corrupted ? USED | CORRUPTED : USED;
+        this.views[index] = active;
+        this.size++;
+        // the row is the source of truth from now on
+        active.attach(this, index, type);
+        return index;
+    }
+
+    /**
+     * Move the state back into the generator and free its row, the generator keeps working on its own.
+     */
+    public void unbind(ActiveGenerator active) {
+        this.lock.writeLock().lock();
+        try {
+            int index = this.indexOf(active);
+            if (index < 0) {
+                return;
+            }
+            BlockKey key = new BlockKey(this.worlds[index], this.positions[index]);
+            active.detach(new UUID(this.ownerMost[index], this.ownerLeast[index]), key, key.toLocation(),
+                    this.registry.getGenerator(this.types[index]), this.currentTimer(index),
+                    (this.flags[index] & CORRUPTED) != 0, this.currentIdle(index));
+            // put the row on the free-list
+            this.flags[index] = 0;
+            synchronized (this.dirty) {
+                this.dirty.clear(index);
+            }
+            this.types[index] = -1;
+            this.views[index] = null;
+            this.nextFree[index] = this.freeHead;
+            this.freeHead = index;
+            this.size--;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void unbindAll(Collection<ActiveGenerator> generators) {
+        this.lock.writeLock().lock();
+        try {
+            generators.forEach(this::unbind);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the owners of corrupted generators, with how many of their generators are corrupted
+     */
+    public Map<UUID, Integer> countCorrupted() {
+        Map<UUID, Integer> counts = new HashMap<>();
+        this.lock.readLock().lock();
+        try {
+            for (int i = 0; i < this.highest; i++) {
+                if ((this.flags[i] & CORRUPTED) != 0) {
+                    counts.merge(new UUID(this.ownerMost[i], this.ownerLeast[i]), 1, Integer::sum);
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    /**
+     * Mark the generator to be saved on the next flush, does nothing if the generator isn't stored.
+     */
+    public void markDirty(ActiveGenerator active) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(active);
+            if (index < 0) {
+                return;
+            }
+            synchronized (this.stripe(index)) {
+                this.setDirty(index);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if any generator still has to be saved
+     */
+    public boolean hasDirty() {
+        synchronized (this.dirty) {
+            return !this.dirty.isEmpty();
+        }
+    }
+
+    /**
+     * Copy every stored generator with its current timer, so it can be written out without holding the lock.
+     */
+    public Rows copyRows() {
+        this.lock.readLock().lock();
+        try {
+            Rows rows = new Rows(this.size);
+            for (int i = 0; i < this.highest; i++) {
+                if ((this.flags[i] & USED) == 0 || this.types[i] < 0) {
+                    continue;
+                }
+                int row = rows.count++;
+                rows.worlds[row] = this.worlds[i];
+                rows.positions[row] = this.positions[i];
+                rows.ownerMost[row] = this.ownerMost[i];
+                rows.ownerLeast[row] = this.ownerLeast[i];
+                // the progress of the row is written together, read it together
+                synchronized (this.stripe(i)) {
+                    rows.types[row] = this.types[i];
+                    rows.timers[row] = this.currentTimer(i);
+                    rows.corrupted[row] = (this.flags[i] & CORRUPTED) != 0;
+                    rows.idles[row] = this.currentIdle(i);
+                }
+            }
+            return rows;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Take up to the limit of dirty generators, they're no longer dirty afterwards.
+     * Mark them dirty again if they couldn't be saved.
+     */
+    public List<ActiveGenerator> drainDirty(int limit) {
+        List<ActiveGenerator> generators = new ArrayList<>();
+        this.lock.readLock().lock();
+        try {
+            synchronized (this.dirty) {
+                for (int i = this.dirty.nextSetBit(0); i >= 0 && generators.size() < limit; i = this.dirty.nextSetBit(i + 1)) {
+                    this.dirty.clear(i);
+                    generators.add(this.views[i]);
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return generators;
+    }
+
+    /**
+     * @param blacklisted the interned ids of the generators that can't be corrupted
+     * @return every stored generator that isn't corrupted and can be corrupted
+     */
+    public List<ActiveGenerator> getCorruptible(BitSet blacklisted) {
+        List<ActiveGenerator> generators = new ArrayList<>();
+        this.lock.readLock().lock();
+        try {
+            for (int i = 0; i < this.highest; i++) {
+                int type = this.types[i];
+                if ((this.flags[i] & (USED | CORRUPTED)) == USED && type >= 0 && !blacklisted.get(type)) {
+                    generators.add(this.views[i]);
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return generators;
+    }
+
+    /*
+     * Row accessors used by the views, they return null or false if the view isn't stored (anymore),
+     * the view falls back to its own state then.
+     */
+
+    UUID getOwner(ActiveGenerator view) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            return index < 0 ? null : new UUID(this.ownerMost[index], this.ownerLeast[index]);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    BlockKey getKey(ActiveGenerator view) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            return index < 0 ? null : new BlockKey(this.worlds[index], this.positions[index]);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    Generator getGenerator(ActiveGenerator view) {
+        // the registry is read without locking, and the type stays valid after the view is unbound
+        return this.registry.getGenerator(view.type);
+    }
+
+    boolean setGenerator(ActiveGenerator view, Generator generator) {
+        int type = generator == null ? -1 : this.registry.typeOf(generator);
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            if (index < 0) {
+                return false;
+            }
+            synchronized (this.stripe(index)) {
+                this.types[index] = type;
+                view.type = type;
+                this.setDirty(index);
+            }
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the timer of the row, or NaN if the view isn't stored
+     */
+    double getTimer(ActiveGenerator view) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            if (index < 0) {
+                return Double.NaN;
+            }
+            synchronized (this.stripe(index)) {
+                return this.currentTimer(index);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    boolean setTimer(ActiveGenerator view, double timer) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            if (index < 0) {
+                return false;
+            }
+            synchronized (this.stripe(index)) {
+                this.timers[index] = timer;
+                this.flags[index] &= ~RUNNING;
+            }
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the owed idle time of the row, or NaN if the view isn't stored
+     */
+    double getIdleTime(ActiveGenerator view) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            if (index < 0) {
+                return Double.NaN;
+            }
+            synchronized (this.stripe(index)) {
+                return this.currentIdle(index);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    boolean setIdleTime(ActiveGenerator view, double idle) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            if (index < 0) {
+                return false;
+            }
+            synchronized (this.stripe(index)) {
+                this.idles[index] = idle;
+                this.idleSinces[index] = 0;
+            }
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keep the scheduling progress of the generator in its row, so the row always has the current timer.
+     */
+    boolean setProgress(ActiveGenerator view, double timer, long timerTick, double interval, boolean running,
+                        long idleSince, double idle) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            if (index < 0) {
+                return false;
+            }
+            synchronized (this.stripe(index)) {
+                this.timers[index] = timer;
+                this.timerTicks[index] = timerTick;
+                this.intervals[index] = interval;
+                this.idles[index] = idle;
+                this.idleSinces[index] = idleSince;
+                this.flags[index] = (byte) (running ? this.flags[index] | RUNNING : this.flags[index] & ~RUNNING);
+            }
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 1 if the row is corrupted, 0 if it's not, or -1 if the view isn't stored
+     */
+    int isCorrupted(ActiveGenerator view) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            return index < 0 ? -1 : (this.flags[index] & CORRUPTED) != 0 ? 1 : 0;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    boolean setCorrupted(ActiveGenerator view, boolean corrupted) {
+        this.lock.readLock().lock();
+        try {
+            int index = this.indexOf(view);
+            if (index < 0) {
+                return false;
+            }
+            synchronized (this.stripe(index)) {
+                this.flags[index] = (byte) (corrupted ? this.flags[index] | CORRUPTED : this.flags[index] & ~CORRUPTED);
+                this.setDirty(index);
+            }
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private int indexOf(ActiveGenerator view) {
+        int index = view.index;
+        if (view.store != this || index < 0 || index >= this.highest || this.views[index] != view) {
+            return -1;
+        }
+        return index;
+    }
+
+    private Object stripe(int index) {
+        return this.stripes[index & (STRIPES - 1)];
+    }
+
+    // called with the stripe of the row
+    private void setDirty(int index) {
+        synchronized (this.dirty) {
+            this.dirty.set(index);
+        }
+        ChangeListener listener = this.changeListener;
+        if (listener != null) {
+            BlockKey key = new BlockKey(this.worlds[index], this.positions[index]);
+            listener.changed(new UUID(this.ownerMost[index], this.ownerLeast[index]), key, this.types[index],
+                    this.currentTimer(index), (this.flags[index] & CORRUPTED) != 0, this.currentIdle(index));
+        }
+    }
+
+    // called with the stripe of the row
+    private double currentTimer(int index) {
+        if ((this.flags[index] & RUNNING) == 0) {
+            return this.timers[index];
+        }
+        // the scheduler only writes the progress when it changes, the ticks since are counted here
+        GeneratorScheduler.Slot slot = this.views[index].getSlot();
+        long elapsed = slot == null ? 0 : Math.max(0, slot.getCurrentTick() - this.timerTicks[index]);
+        return Math.min(this.intervals[index], this.timers[index] + elapsed * GeneratorScheduler.TICK_SECONDS);
+    }
+
+    // called with the stripe of the row
+    private double currentIdle(int index) {
+        long since = this.idleSinces[index];
+        if (since == 0) {
+            return this.idles[index];
+        }
+        return this.idles[index] + Math.max(0, System.currentTimeMillis() - since) / 1000.0;
+    }
+
+    private int allocate() {
+        // reuse a freed row first
+        if (this.freeHead >= 0) {
+            int index = this.freeHead;
+            this.freeHead = this.nextFree[index];
+            return index;
+        }
+        if (this.highest == this.flags.length) {
+            this.resize(this.flags.length * 2);
+        }
+        return this.highest++;
+    }
+
+    private void resize(int capacity) {
+        this.worlds = this.worlds == null ? new int[capacity] : Arrays.copyOf(this.worlds, capacity);
+        this.positions = this.positions == null ? new long[capacity] : Arrays.copyOf(this.positions, capacity);
+        this.ownerMost = this.ownerMost == null ? new long[capacity] : Arrays.copyOf(this.ownerMost, capacity);
+        this.ownerLeast = this.ownerLeast == null ? new long[capacity] : Arrays.copyOf(this.ownerLeast, capacity);
+        this.types = this.types == null ? new int[capacity] : Arrays.copyOf(this.types, capacity);
+        this.timers = this.timers == null ? new double[capacity] : Arrays.copyOf(this.timers, capacity);
+        this.timerTicks = this.timerTicks == null ? new long[capacity] : Arrays.copyOf(this.timerTicks, capacity);
+        this.intervals = this.intervals == null ? new double[capacity] : Arrays.copyOf(this.intervals, capacity);
+        this.idles = this.idles == null ? new double[capacity] : Arrays.copyOf(this.idles, capacity);
+        this.idleSinces = this.idleSinces == null ? new long[capacity] : Arrays.copyOf(this.idleSinces, capacity);
+        this.flags = this.flags == null ? new byte[capacity] : Arrays.copyOf(this.flags, capacity);
+        this.views = this.views == null ? new ActiveGenerator[capacity] : Arrays.copyOf(this.views, capacity);
+        this.nextFree = this.nextFree == null ? new int[capacity] : Arrays.copyOf(this.nextFree, capacity);
+    }
+
+    /**
+     * Receives the state of a row every time it's marked as changed. It's called while the row is locked,
+     * so it must not call back into the store.
+     */
+    public interface ChangeListener {
+
+        void changed(UUID owner, BlockKey key, int type, double timer, boolean corrupted, double idle);
+
+    }
+
+    /**
+     * A copy of the stored generators taken by {@link #copyRows()}.
+     */
+    public static final class Rows {
+
+        private final int[] types;
+        private final int[] worlds;
+        private final long[] positions;
+        private final long[] ownerMost;
+        private final long[] ownerLeast;
+        private final double[] timers;
+        private final boolean[] corrupted;
+        private final double[] idles;
+        private int count;
+
+        private Rows(int capacity) {
+            this.types = new int[capacity];
+            this.worlds = new int[capacity];
+            this.positions = new long[capacity];
+            this.ownerMost = new long[capacity];
+            this.ownerLeast = new long[capacity];
+            this.timers = new double[capacity];
+            this.corrupted = new boolean[capacity];
+            this.idles = new double[capacity];
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public void forEach(RowVisitor visitor) {
+            for (int i = 0; i < this.count; i++) {
+                visitor.visit(this.types[i], this.worlds[i], this.positions[i], this.ownerMost[i], this.ownerLeast[i],
+                        this.timers[i], this.corrupted[i], this.idles[i]);
+            }
+        }
+
+    }
+
+    public interface RowVisitor {
+
+        void visit(int type, int world, long position, long ownerMost, long ownerLeast, double timer, boolean corrupted,
+                   double idle);
+
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.function.Supplier;
+
+/**
+ * A frozen item stack that is built once and handed out as clones.
+ * The template itself never leaves this class, so it can't be modified by the callers.
+ */
+public final class ItemTemplate {
+
+    private volatile ItemStack template;
+
+    /**
+     * Build the template, replacing the previous one.
+     */
+    public void compile(Supplier<ItemStack> builder) {
+        this.template = builder.get();
+    }
+
+    /**
+     * @return a copy of the template, the template is built first if it doesn't exist yet
+     */
+    public ItemStack create(Supplier<ItemStack> builder) {
+        ItemStack template = this.template;
+        if (template == null) {
+            template = builder.get();
+            this.template = template;
+        }
+        return template.clone();
+    }
+
+    public void invalidate() {
+        this.template = null;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Mutable state derived from a record, kept next to the record instead of in its components,
+ * so it doesn't take part in the equality of the record.
+ * <p>
+ * The state is keyed by the id of the record and belongs to one instance. Once another instance
+ * with the same id asks for it, e.g. after the config has been reloaded, a new state is created.
+ */
+final class RecordCache<R, V> {
+
+    private final Map<String, Entry<R, V>> entries = new ConcurrentHashMap<>();
+    private final Supplier<V> factory;
+
+    RecordCache(Supplier<V> factory) {
+        this.factory = factory;
+    }
+
+    V get(String id, R owner) {
+        Entry<R, V> entry = this.entries.get(id);
+        if (entry != null && entry.owner() == owner) {
+            return entry.value();
+        }
+        return this.entries.compute(id, (key, previous) ->
+                previous != null && previous.owner() == owner ? previous : new Entry<>(owner, this.factory.get())).value();
+    }
+
+    private record Entry<R, V>(R owner, V value) {}
+
+}
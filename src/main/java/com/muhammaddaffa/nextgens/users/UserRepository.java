@@ -1,9 +1,14 @@
 package com.muhammaddaffa.nextgens.users;
 
+import com.muhammaddaffa.mdlib.utils.Executor;
 import com.muhammaddaffa.mdlib.utils.Logger;
 import com.muhammaddaffa.nextgens.NextGens;
 import com.muhammaddaffa.nextgens.managers.DatabaseManager;
+import com.muhammaddaffa.nextgens.managers.UserManager;
 import com.muhammaddaffa.nextgens.objects.User;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -11,6 +16,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 public class UserRepository {
 
@@ -22,22 +30,93 @@ public class UserRepository {
         this.userManager = userManager;
     }
 
-    public void loadUsers() {
-        String query = "SELECT * FROM " + DatabaseManager.USER_TABLE;
-        dbManager.executeQuery(query, result -> {
-            while (result.next()) {
-                User user = extractUserFromResultSet(result);
-                userManager.addUser(user);
+    /**
+     * Load the users of the players that are already online, e.g. after a reload.
+     * Everyone else is loaded when they join.
+     */
+    public void loadOnlineUsers() {
+        int loaded = 0;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            try {
+                User user = loadUser(player.getUniqueId());
+                userManager.cacheUser(user == null ? new User(player.getUniqueId()) : user);
+                loaded++;
+            } catch (SQLException ex) {
+                Logger.severe("Failed to load the data of " + player.getName() + "!");
+                ex.printStackTrace();
             }
-            Logger.info("Successfully loaded " + userManager.getUsers().size() + " users data!");
-        });
+        }
+        Logger.info("Successfully loaded " + loaded + " users data!");
+    }
+
+    /**
+     * Read the user from the database, blocks until the query is done.
+     *
+     * @return the stored user, or null if the player has no data yet
+     */
+    @Nullable
+    public User loadUser(UUID uuid) throws SQLException {
+        String query = "SELECT * FROM " + DatabaseManager.USER_TABLE + " WHERE uuid=?";
+        try (Connection connection = dbManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+
+            statement.setString(1, uuid.toString());
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? extractUserFromResultSet(result) : null;
+            }
+        }
+    }
+
+    /**
+     * Get the user of any player, offline players are read from the database
+     * and kept in the offline cache for a while.
+     *
+     * @return the user, or null if the player has no data
+     */
+    public CompletableFuture<User> getUserAsync(UUID uuid) {
+        User cached = userManager.getCachedUser(uuid);
+        if (cached != null && userManager.isLoaded(cached)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                User user = loadUser(uuid);
+                return user == null ? null : userManager.cacheUser(user);
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        }, Executor::async);
+    }
+
+    /**
+     * @see #getUserAsync(UUID)
+     */
+    public CompletableFuture<User> getUserAsync(String name) {
+        User cached = userManager.getUser(name);
+        if (cached != null && userManager.isLoaded(cached)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        // the name lookup can hit the network, so it's done off the main thread as well
+        return CompletableFuture.supplyAsync(() -> Bukkit.getOfflinePlayer(name), Executor::async)
+                .thenCompose(player -> player.hasPlayedBefore() || player.isOnline() ?
+                        getUserAsync(player.getUniqueId()) : CompletableFuture.completedFuture(null));
     }
 
     public void saveUser(User user) {
         saveUsers(List.of(user));
     }
 
-    public void saveUsers(List<User> users) {
+    /**
+     * Save the users in a single batch.
+     *
+     * @return false if the users couldn't be saved
+     */
+    public boolean saveUsers(List<User> users) {
+        // placeholders have never been loaded, saving them would overwrite the stored data
+        List<User> loaded = users.stream().filter(userManager::isLoaded).collect(Collectors.toList());
+        if (loaded.isEmpty()) {
+            return true;
+        }
         String query = NextGens.getInstance().getDatabaseManager().isMysql() ?
                 "INSERT INTO " + DatabaseManager.USER_TABLE + " " +
                         "(uuid, bonus, multiplier, earnings, items_sold, normal_sell, sellwand_sell, toggle_cashback, toggle_inventory_sell, toggle_gens_sell) " +
@@ -54,19 +133,18 @@ public class UserRepository {
                         "toggle_cashback = excluded.toggle_cashback, toggle_inventory_sell = excluded.toggle_inventory_sell, " +
                         "toggle_gens_sell = excluded.toggle_gens_sell";
 
-        try (Connection connection = dbManager.getConnection();
-             PreparedStatement statement = connection.prepareStatement(query)) {
-
-            for (User user : users) {
-                setStatementParameters(statement, user);
-                statement.addBatch();
+        return dbManager.write(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (User user : loaded) {
+                    setStatementParameters(statement, user);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
             }
-            statement.executeBatch();
-            Logger.info("Successfully saved " + users.size() + " users data!");
-        } catch (SQLException ex) {
-            Logger.severe("Failed to save " + users.size() + " users data!");
+        }, ex -> {
+            Logger.severe("Failed to save " + loaded.size() + " users data!");
             ex.printStackTrace();
-        }
+        });
     }
 
     private User extractUserFromResultSet(ResultSet result) throws SQLException {
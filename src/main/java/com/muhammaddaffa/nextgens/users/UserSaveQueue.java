@@ -0,0 +1,130 @@
+package com.muhammaddaffa.nextgens.users;
+
+import com.muhammaddaffa.mdlib.utils.Executor;
+import com.muhammaddaffa.nextgens.NextGens;
+import com.muhammaddaffa.nextgens.objects.User;
+import com.muhammaddaffa.nextgens.utils.Settings;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects the users that have been changed and saves them together in a single batch,
+ * a user that changes many times between two flushes is only saved once.
+ */
+public class UserSaveQueue {
+
+    private final Map<UUID, User> dirty = new ConcurrentHashMap<>();
+    // users that are being written right now, they still count as dirty
+    private final Set<UUID> saving = ConcurrentHashMap.newKeySet();
+    private final Object flushLock = new Object();
+    // a flush has been queued and hasn't started yet, the changes until then are written with it
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private final UserRepository userRepository;
+    private BukkitTask task;
+
+    public UserSaveQueue(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Queue the user to be saved on the next flush.
+     */
+    public void markDirty(User user) {
+        this.dirty.put(user.getUniqueId(), user);
+        // without auto-save every change is written right away, the changes made
+        // before the queued flush starts are written together
+        if (!Settings.AUTO_SAVE_ENABLED && !NextGens.STOPPING && this.flushQueued.compareAndSet(false, true)) {
+            Executor.async(() -> {
+                this.flushQueued.set(false);
+                this.flush();
+            });
+        }
+    }
+
+    /**
+     * Save every queued user.
+     *
+     * @return how many users have been saved
+     */
+    public int flush() {
+        synchronized (this.flushLock) {
+            List<User> users = new ArrayList<>();
+            for (Map.Entry<UUID, User> entry : this.dirty.entrySet()) {
+                this.saving.add(entry.getKey());
+                // a user changed after this point stays queued for the next flush
+                if (this.dirty.remove(entry.getKey(), entry.getValue())) {
+                    users.add(entry.getValue());
+                }
+            }
+            return this.save(users);
+        }
+    }
+
+    /**
+     * Save the user right away if it's queued, e.g. when the player leaves.
+     */
+    public void flush(UUID uuid) {
+        synchronized (this.flushLock) {
+            this.saving.add(uuid);
+            User user = this.dirty.remove(uuid);
+            if (user != null) {
+                this.save(List.of(user));
+            }
+            this.saving.remove(uuid);
+        }
+    }
+
+    public void startTask() {
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+        if (!Settings.AUTO_SAVE_ENABLED) {
+            return;
+        }
+        long intervalTicks = Math.max(1, Settings.AUTO_SAVE_USER_INTERVAL) * 20L;
+        this.task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }.runTaskTimerAsynchronously(NextGens.getInstance(), intervalTicks, intervalTicks);
+    }
+
+    /**
+     * @return true if the user has changes that haven't been saved yet
+     */
+    public boolean isDirty(UUID uuid) {
+        return this.dirty.containsKey(uuid) || this.saving.contains(uuid);
+    }
+
+    public int size() {
+        return this.dirty.size();
+    }
+
+    private int save(List<User> users) {
+        try {
+            if (users.isEmpty()) {
+                return 0;
+            }
+            if (!this.userRepository.saveUsers(users)) {
+                // queue them again, unless they've been changed in the meantime
+                users.forEach(user -> this.dirty.putIfAbsent(user.getUniqueId(), user));
+                return 0;
+            }
+            return users.size();
+        } finally {
+            this.saving.clear();
+        }
+    }
+
+}
@@ -9,11 +9,11 @@ import java.util.List;
 
 public class Settings {
 
-    public static boolean FORCE_UPDATE_BLOCKS, AUTO_SAVE_ENABLED, CORRUPTION_ENABLED, CORRUPTION_GUI_FIX,
+    public static boolean FORCE_UPDATE_BLOCKS, AUTO_SAVE_ENABLED, JOURNAL_ENABLED, SNAPSHOT_ENABLED, CORRUPTION_ENABLED, CORRUPTION_GUI_FIX,
             CORRUPTION_HOLOGRAM, DEFAULT_MAX_GENERATOR_ENABLED, SELL_COMMAND, PLACE_PERMISSION, ONLINE_ONLY,
             ANTI_EXPLOSION, DISABLE_DROP_PLACE, ISLAND_PICKUP,
             UPGRADE_GUI, CLOSE_ON_PURCHASE, CLOSE_ON_NO_MONEY, DROP_ON_BREAK, BROKEN_PICKUP, REPAIR_OWNER_ONLY,
-            DISABLE_CRAFTING, GENERATOR_PLACE_DISTANCE;
+            DISABLE_CRAFTING, GENERATOR_PLACE_DISTANCE, OFFLINE_ACCRUAL;
 
     // String
     public static String GENS_PICKUP_ACTION, GENS_UPGRADE_ACTION, GENS_FIX_ACTION, CORRUPT_GUI_TITLE;
@@ -22,13 +22,15 @@ public class Settings {
     public static List<String> BLACKLISTED_WORLDS, CORRUPTION_BLACKLISTED_GENERATORS, CORRUPTION_HOLOGRAM_LINES;
 
     // Integer
-    public static int CORRUPTION_PERCENTAGE, CORRUPTION_INTERVAL, CORRUPTION_NOTIFY_INTERVAL, CORRUPT_GUI_SIZE;
+    public static int CORRUPTION_PERCENTAGE, CORRUPTION_INTERVAL, CORRUPTION_NOTIFY_INTERVAL, CORRUPT_GUI_SIZE,
+            AUTO_SAVE_INTERVAL, AUTO_SAVE_FLUSH_BUDGET, AUTO_SAVE_USER_INTERVAL, LOAD_FETCH_SIZE, LOAD_THREADS,
+            USER_CACHE_MAX_SIZE, USER_CACHE_EXPIRE, JOURNAL_SYNC_INTERVAL, SNAPSHOT_INTERVAL;
 
     // Integer List
     public static List<Integer> CORRUPT_GUI_DISPLAY_SLOTS;
 
     // Double
-    public static double CORRUPTION_HOLOGRAM_HEIGHT;
+    public static double CORRUPTION_HOLOGRAM_HEIGHT, DROP_DISPATCH_BUDGET, BLOCK_CLEAR_BUDGET, OFFLINE_ACCRUAL_MAX_SECONDS;
 
     // Config Message
     public static ConfigMessage CORRUPTION_BROADCAST, CORRUPTION_NOTIFY_MESSAGE;
@@ -61,6 +63,7 @@ public class Settings {
         REPAIR_OWNER_ONLY = config.getBoolean("repair-owner-only");
         DISABLE_CRAFTING = config.getBoolean("disable-crafting.enabled");
         GENERATOR_PLACE_DISTANCE = config.getBoolean("generator-place-distance.enabled");
+        OFFLINE_ACCRUAL = config.getBoolean("offline-accrual.enabled");
 
         // String
         GENS_PICKUP_ACTION = config.getString("interaction.gens-pickup");
@@ -76,9 +79,23 @@ public class Settings {
         CORRUPTION_PERCENTAGE = config.getInt("corruption.percentage");
         CORRUPTION_INTERVAL = config.getInt("corruption.interval");
         CORRUPTION_NOTIFY_INTERVAL = config.getInt("corruption.notify.interval");
+        AUTO_SAVE_INTERVAL = config.getInt("auto-save.interval", 60);
+        AUTO_SAVE_FLUSH_BUDGET = config.getInt("auto-save.flush-budget", 250);
+        AUTO_SAVE_USER_INTERVAL = config.getInt("auto-save.user-interval", 30);
+        LOAD_FETCH_SIZE = config.getInt("startup-load.fetch-size", 1000);
+        LOAD_THREADS = config.getInt("startup-load.threads", 2);
+        USER_CACHE_MAX_SIZE = config.getInt("user-cache.max-size", 1000);
+        USER_CACHE_EXPIRE = config.getInt("user-cache.expire-after", 10);
+        JOURNAL_ENABLED = config.getBoolean("journal.enabled", true);
+        JOURNAL_SYNC_INTERVAL = config.getInt("journal.sync-interval", 200);
+        SNAPSHOT_ENABLED = config.getBoolean("snapshot.enabled", true);
+        SNAPSHOT_INTERVAL = config.getInt("snapshot.interval", 10);
 
         // Double
         CORRUPTION_HOLOGRAM_HEIGHT = config.getDouble("corruption.hologram.height");
+        DROP_DISPATCH_BUDGET = config.getDouble("drop-dispatch-budget", 10);
+        BLOCK_CLEAR_BUDGET = config.getDouble("block-clear-budget", 5);
+        OFFLINE_ACCRUAL_MAX_SECONDS = config.getDouble("offline-accrual.max-seconds", 3600);
 
         // Config Message
         CORRUPTION_BROADCAST = new ConfigMessage(config, "corruption.broadcast");
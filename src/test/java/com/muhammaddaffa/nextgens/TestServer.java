@@ -0,0 +1,91 @@
+package com.muhammaddaffa.nextgens;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A server stub for the tests that need {@link Bukkit#getWorld(String)}, e.g. to turn a stored
+ * location back into a world. It only knows the worlds that have been loaded, every other
+ * method does nothing.
+ */
+public final class TestServer {
+
+    private static final Map<String, World> WORLDS = new ConcurrentHashMap<>();
+    private static final Set<String> LOADED_WORLDS = ConcurrentHashMap.newKeySet();
+
+    private TestServer() {}
+
+    /**
+     * Set the stub as the server, the server can only be set once per JVM.
+     */
+    public static synchronized void install() {
+        if (Bukkit.getServer() == null) {
+            Bukkit.setServer(stub(Server.class, "NextGens Test"));
+        }
+    }
+
+    /**
+     * @return the world with the name, it isn't returned by the server until it's loaded
+     */
+    public static World world(String name) {
+        return WORLDS.computeIfAbsent(name, k -> stub(World.class, k));
+    }
+
+    public static World load(String name) {
+        LOADED_WORLDS.add(name);
+        return world(name);
+    }
+
+    public static void unloadAll() {
+        LOADED_WORLDS.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, String name) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, arguments) ->
+                switch (method.getName()) {
+                    case "getName", "getVersion", "getBukkitVersion", "toString" -> name;
+                    case "getUID" -> UUID.nameUUIDFromBytes(name.getBytes());
+                    case "getLogger" -> java.util.logging.Logger.getLogger(name);
+                    case "getWorld" -> arguments[0] instanceof String world && LOADED_WORLDS.contains(world) ?
+                            WORLDS.get(world) : null;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == arguments[0];
+                    default -> defaultValue(method);
+                });
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type.isPrimitive() && type != void.class) {
+            return switch (type.getName()) {
+                case "long" -> 0L;
+                case "float" -> 0F;
+                case "double" -> 0D;
+                case "byte" -> (byte) 0;
+                case "short" -> (short) 0;
+                default -> 0;
+            };
+        }
+        // e.g. the console sender of the server
+        if (type.isInterface() && type.getName().startsWith("org.bukkit")) {
+            return stub(type, type.getSimpleName());
+        }
+        return null;
+    }
+
+}
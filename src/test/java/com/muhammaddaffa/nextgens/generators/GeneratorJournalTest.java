@@ -0,0 +1,202 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.nextgens.objects.BlockKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratorJournalTest {
+
+    // long enough that only the test syncs the journal
+    private static final long SYNC_INTERVAL = 60_000;
+
+    @TempDir
+    File directory;
+
+    private GeneratorJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.journal = new GeneratorJournal(this.directory);
+        this.journal.open(SYNC_INTERVAL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.journal.close();
+    }
+
+    @Test
+    void replaysEveryRecordInOrder() {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 2.5, false, 0);
+        // the owed idle time of a generator in an unloaded chunk
+        this.journal.put(owner, key(2, 64, 2), 4, 0, true, 1800.5);
+        this.journal.delete(key(1, 64, 1));
+        this.journal.close();
+
+        assertEquals(List.of(
+                new GeneratorJournal.Record(false, owner, "world", 1, 64, 1, 3, 2.5, false, 0),
+                new GeneratorJournal.Record(false, owner, "world", 2, 64, 2, 4, 0, true, 1800.5),
+                new GeneratorJournal.Record(true, null, "world", 1, 64, 1, -1, 0, false, 0)
+        ), this.replay());
+    }
+
+    @Test
+    void stopsAtTruncatedTail() throws IOException {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 0, false, 0);
+        this.journal.put(owner, key(2, 64, 2), 3, 0, false, 0);
+        this.journal.close();
+
+        // the server crashed while the second record was written
+        try (RandomAccessFile file = new RandomAccessFile(this.onlySegment(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        List<GeneratorJournal.Record> records = this.replay();
+        assertEquals(1, records.size());
+        assertEquals(1, records.get(0).x());
+    }
+
+    @Test
+    void stopsAtCorruptedTail() throws IOException {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 0, false, 0);
+        this.journal.put(owner, key(2, 64, 2), 3, 0, false, 0);
+        this.journal.close();
+
+        // flip the last byte of the second record, its checksum doesn't match anymore
+        try (RandomAccessFile file = new RandomAccessFile(this.onlySegment(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        List<GeneratorJournal.Record> records = this.replay();
+        assertEquals(1, records.size());
+        assertEquals(1, records.get(0).x());
+    }
+
+    @Test
+    void brokenSegmentDoesNotHideLaterSegments() throws IOException {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 0, false, 0);
+        long segment = this.journal.rotate();
+        this.journal.put(owner, key(2, 64, 2), 3, 0, false, 0);
+        this.journal.close();
+
+        File previous = new File(this.directory, "generators-" + (segment - 1) + ".log");
+        try (RandomAccessFile file = new RandomAccessFile(previous, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        List<GeneratorJournal.Record> records = this.replay();
+        assertEquals(1, records.size());
+        assertEquals(2, records.get(0).x());
+    }
+
+    @Test
+    void rotateKeepsEmptySegment() throws IOException {
+        long segment = this.journal.rotate();
+        assertEquals(segment, this.journal.rotate());
+
+        this.journal.put(UUID.randomUUID(), key(1, 64, 1), 3, 0, false, 0);
+        assertEquals(segment + 1, this.journal.rotate());
+    }
+
+    @Test
+    void compactDeletesOnlyOlderSegments() throws IOException {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 0, false, 0);
+        this.journal.delete(key(1, 64, 1));
+        // everything before the rotation has been written to the database
+        long segment = this.journal.rotate();
+        this.journal.put(owner, key(2, 64, 2), 3, 0, false, 0);
+        this.journal.compact(segment);
+        this.journal.close();
+
+        List<GeneratorJournal.Record> records = this.replay();
+        assertEquals(1, records.size());
+        assertFalse(records.get(0).delete());
+        assertEquals(2, records.get(0).x());
+    }
+
+    @Test
+    void deleteRecordedAfterRotationSurvivesCompaction() throws IOException {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 0, false, 0);
+        // a flush rotates while the generator is being removed
+        long segment = this.journal.rotate();
+        this.journal.delete(key(1, 64, 1));
+        this.journal.compact(segment);
+        this.journal.close();
+
+        List<GeneratorJournal.Record> records = this.replay();
+        assertEquals(1, records.size());
+        assertTrue(records.get(0).delete());
+        assertEquals(1, records.get(0).x());
+    }
+
+    @Test
+    void deleteRecordedBeforeRotationIsCompactedWithItsSegment() throws IOException {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 0, false, 0);
+        // not synced yet, the rotation still writes it into the old segment
+        this.journal.delete(key(1, 64, 1));
+        long segment = this.journal.rotate();
+        // so the flush has to delete it from the database before it compacts
+        this.journal.compact(segment);
+        this.journal.close();
+
+        assertTrue(this.replay().isEmpty());
+    }
+
+    @Test
+    void deleteIsReplayedAfterPutOfPreviousRun() throws IOException {
+        UUID owner = UUID.randomUUID();
+        this.journal.put(owner, key(1, 64, 1), 3, 0, false, 0);
+        this.journal.close();
+
+        // the next run continues in a new segment
+        this.journal = new GeneratorJournal(this.directory);
+        this.journal.open(SYNC_INTERVAL);
+        this.journal.delete(key(1, 64, 1));
+        this.journal.close();
+
+        List<GeneratorJournal.Record> records = this.replay();
+        assertEquals(2, records.size());
+        assertFalse(records.get(0).delete());
+        assertTrue(records.get(1).delete());
+    }
+
+    private List<GeneratorJournal.Record> replay() {
+        List<GeneratorJournal.Record> records = new ArrayList<>();
+        int count = new GeneratorJournal(this.directory).replay(records::add);
+        assertEquals(records.size(), count);
+        return records;
+    }
+
+    private File onlySegment() {
+        File[] files = this.directory.listFiles((dir, name) -> name.endsWith(".log"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static BlockKey key(int x, int y, int z) {
+        return new BlockKey(BlockKey.worldId("world"), BlockKey.pack(x, y, z));
+    }
+
+}
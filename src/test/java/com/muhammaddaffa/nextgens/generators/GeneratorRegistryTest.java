@@ -0,0 +1,86 @@
+package com.muhammaddaffa.nextgens.generators;
+
+import com.muhammaddaffa.nextgens.managers.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two registries on the same table behave like two servers sharing a database.
+ */
+class GeneratorRegistryTest {
+
+    @TempDir
+    File directory;
+
+    private DatabaseManager dbm;
+    private GeneratorRegistry first;
+    private GeneratorRegistry second;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.dbm = new DatabaseManager();
+        this.dbm.connectSQLite(new File(this.directory, "generators.db").getPath(), true);
+        this.dbm.createGeneratorTable();
+        this.first = new GeneratorRegistry(this.dbm);
+        this.first.load();
+        this.second = new GeneratorRegistry(this.dbm);
+        this.second.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.dbm.close();
+    }
+
+    @Test
+    void serversNeverShareAnInteger() {
+        int coal = this.first.intern("coal");
+        // the second server doesn't know about coal yet
+        int iron = this.second.intern("iron");
+
+        assertNotEquals(coal, iron);
+        assertEquals(coal, this.second.intern("coal"));
+        assertEquals(iron, this.first.intern("iron"));
+    }
+
+    @Test
+    void integersSurviveARestart() {
+        int coal = this.first.intern("coal");
+        int iron = this.first.intern("iron");
+
+        GeneratorRegistry restarted = new GeneratorRegistry(this.dbm);
+        restarted.load();
+        assertEquals(coal, restarted.indexOf("coal"));
+        assertEquals(iron, restarted.indexOf("iron"));
+        assertEquals("iron", restarted.getId(iron));
+    }
+
+    @Test
+    void renameKeepsTheInteger() {
+        int coal = this.first.intern("coal");
+        this.second.intern("coal");
+
+        assertEquals(coal, this.first.intern("charcoal", List.of("coal")));
+        assertEquals(-1, this.first.indexOf("coal"));
+        // the second server renames it after the first one already did
+        assertEquals(coal, this.second.intern("charcoal", List.of("coal")));
+        assertEquals("charcoal", this.second.getId(coal));
+    }
+
+    @Test
+    void failedAssignmentIsNotKept() {
+        this.dbm.close();
+
+        assertThrows(IllegalStateException.class, () -> this.first.intern("coal"));
+        assertEquals(-1, this.first.indexOf("coal"));
+    }
+
+}
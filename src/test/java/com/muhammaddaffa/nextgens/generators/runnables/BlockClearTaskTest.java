@@ -0,0 +1,66 @@
+package com.muhammaddaffa.nextgens.generators.runnables;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockClearTaskTest {
+
+    @Test
+    void drainsEverythingWithinTheBudget() {
+        Queue<Integer> queue = this.queue(100);
+        List<Integer> cleared = new ArrayList<>();
+
+        assertEquals(100, BlockClearTask.drain(queue, cleared::add, TimeUnit.SECONDS.toNanos(10)));
+        assertTrue(queue.isEmpty());
+        // in the order they have been submitted
+        assertEquals(0, cleared.get(0));
+        assertEquals(99, cleared.get(99));
+    }
+
+    @Test
+    void takesOneWithoutBudget() {
+        Queue<Integer> queue = this.queue(10);
+
+        assertEquals(1, BlockClearTask.drain(queue, element -> {}, 0));
+        assertEquals(9, queue.size());
+    }
+
+    @Test
+    void stopsOnceTheBudgetIsUsedUp() {
+        Queue<Integer> queue = this.queue(100);
+
+        int drained = BlockClearTask.drain(queue, element -> sleep(2), TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(drained >= 1 && drained < 100, "drained " + drained);
+        // the rest is left for the next tick
+        assertEquals(100 - drained, queue.size());
+    }
+
+    @Test
+    void emptyQueueDoesNothing() {
+        assertEquals(0, BlockClearTask.drain(new ArrayDeque<Integer>(), element -> fail(), 0));
+    }
+
+    private Queue<Integer> queue(int size) {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            queue.add(i);
+        }
+        return queue;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
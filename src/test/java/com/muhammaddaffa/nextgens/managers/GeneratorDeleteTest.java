@@ -0,0 +1,108 @@
+package com.muhammaddaffa.nextgens.managers;
+
+import com.muhammaddaffa.nextgens.TestServer;
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
+import com.muhammaddaffa.nextgens.objects.ActiveGenerator;
+import com.muhammaddaffa.nextgens.objects.Generator;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratorDeleteTest {
+
+    private static final Generator COAL = new Generator("coal", "Coal", 10, null, List.of(), null, 0, false, 0, 0, null,
+            List.of(), List.of());
+
+    @TempDir
+    File directory;
+
+    private DatabaseManager dbm;
+    private GeneratorRegistry registry;
+    private World world;
+
+    @BeforeAll
+    static void setUpServer() {
+        TestServer.install();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.world = TestServer.load("world");
+        this.dbm = new DatabaseManager();
+        this.dbm.connectSQLite(new File(this.directory, "generators.db").getPath(), true);
+        this.dbm.createGeneratorTable();
+        this.registry = new GeneratorRegistry(this.dbm);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.dbm.close();
+    }
+
+    @Test
+    void deletesEveryGeneratorOfTheBulk() {
+        // more than one batch of the delete statement
+        List<ActiveGenerator> generators = this.generators(250);
+        assertTrue(this.dbm.saveGenerator(generators, this.registry));
+
+        assertTrue(this.dbm.deleteGenerator(generators.subList(0, 230)));
+
+        Set<Integer> left = this.storedX();
+        assertEquals(20, left.size());
+        for (int x = 230; x < 250; x++) {
+            assertTrue(left.contains(x));
+        }
+    }
+
+    @Test
+    void skipsGeneratorsThatAreNotStored() {
+        List<ActiveGenerator> generators = this.generators(3);
+        assertTrue(this.dbm.saveGenerator(generators.subList(0, 2), this.registry));
+
+        List<ActiveGenerator> removed = new ArrayList<>(generators);
+        // the world doesn't exist anymore
+        removed.add(new ActiveGenerator(UUID.randomUUID(), new Location(null, 1, 64, 1), COAL));
+        assertTrue(this.dbm.deleteGenerator(removed));
+
+        assertTrue(this.storedX().isEmpty());
+    }
+
+    @Test
+    void emptyBulkSucceeds() {
+        assertTrue(this.dbm.deleteGenerator(List.of()));
+    }
+
+    private List<ActiveGenerator> generators(int amount) {
+        UUID owner = UUID.randomUUID();
+        List<ActiveGenerator> generators = new ArrayList<>(amount);
+        for (int x = 0; x < amount; x++) {
+            generators.add(new ActiveGenerator(owner, new Location(this.world, x, 64, 0), COAL));
+        }
+        return generators;
+    }
+
+    private Set<Integer> storedX() {
+        Set<Integer> stored = new HashSet<>();
+        this.dbm.executeQuery("SELECT x FROM " + DatabaseManager.GENERATOR_TABLE, result -> {
+            while (result.next()) {
+                stored.add(result.getInt(1));
+            }
+        });
+        return stored;
+    }
+
+}
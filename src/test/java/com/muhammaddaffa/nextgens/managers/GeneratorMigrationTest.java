@@ -0,0 +1,184 @@
+package com.muhammaddaffa.nextgens.managers;
+
+import com.muhammaddaffa.mdlib.utils.LocationUtils;
+import com.muhammaddaffa.nextgens.TestServer;
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Moves legacy generators into the v2 table. The legacy rows store their location as text,
+ * so the test runs against the {@link TestServer} to turn them back into worlds.
+ */
+class GeneratorMigrationTest {
+
+    @TempDir
+    File directory;
+
+    private DatabaseManager dbm;
+    private GeneratorRegistry registry;
+
+    @BeforeAll
+    static void setUpServer() {
+        TestServer.install();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        TestServer.unloadAll();
+        TestServer.load("world");
+
+        this.dbm = new DatabaseManager();
+        this.dbm.connectSQLite(new File(this.directory, "generators.db").getPath(), true);
+        // the table of older versions, before the type column has been added
+        this.dbm.executeUpdate("CREATE TABLE " + DatabaseManager.LEGACY_GENERATOR_TABLE + " (" +
+                "owner VARCHAR(255), " +
+                "location TEXT UNIQUE, " +
+                "generator_id TEXT, " +
+                "timer DECIMAL(18,2), " +
+                "is_corrupted INT" +
+                ");");
+        this.dbm.createGeneratorTable();
+        this.registry = new GeneratorRegistry(this.dbm);
+        this.registry.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.dbm.close();
+    }
+
+    @Test
+    void movesEveryRowAndDropsTheLegacyTable() {
+        UUID owner = UUID.randomUUID();
+        int iron = this.registry.intern("iron");
+        this.insertLegacy(owner.toString(), "world", 10, 64, -20, "coal", null, 2.5, false);
+        this.insertLegacy(owner.toString(), "world", 100, 70, 33, null, iron, 0, true);
+
+        this.dbm.migrateGenerators(this.registry);
+
+        assertFalse(this.legacyTableExists());
+        int coal = this.registry.indexOf("coal");
+        assertTrue(coal >= 0);
+        assertEquals(Set.of(
+                new Row(owner, "world", 10, 64, -20, 0, -2, coal, 2.5, false),
+                new Row(owner, "world", 100, 70, 33, 6, 2, iron, 0, true)
+        ), this.readRows());
+    }
+
+    @Test
+    void discardsRowsWithoutOwnerOrGenerator() {
+        this.insertLegacy(null, "world", 1, 64, 1, "coal", null, 0, false);
+        this.insertLegacy("not-a-uuid", "world", 2, 64, 2, "coal", null, 0, false);
+        this.insertLegacy(UUID.randomUUID().toString(), "world", 3, 64, 3, null, null, 0, false);
+
+        this.dbm.migrateGenerators(this.registry);
+
+        assertFalse(this.legacyTableExists());
+        assertTrue(this.readRows().isEmpty());
+    }
+
+    @Test
+    void keepsRowsOfUnloadedWorldsForTheNextStart() {
+        UUID owner = UUID.randomUUID();
+        this.insertLegacy(owner.toString(), "world", 1, 64, 1, "coal", null, 0, false);
+        this.insertLegacy(owner.toString(), "world_nether", 2, 64, 2, "coal", null, 0, false);
+
+        this.dbm.migrateGenerators(this.registry);
+
+        assertTrue(this.legacyTableExists());
+        assertEquals(1, this.readRows().size());
+
+        // the world is loaded on the next start
+        TestServer.load("world_nether");
+        this.dbm.migrateGenerators(this.registry);
+
+        assertFalse(this.legacyTableExists());
+        Set<Row> rows = this.readRows();
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().anyMatch(row -> row.world().equals("world_nether")));
+    }
+
+    @Test
+    void keepsRowsWrittenByTheRunningServer() {
+        UUID legacyOwner = UUID.randomUUID();
+        UUID currentOwner = UUID.randomUUID();
+        int coal = this.registry.intern("coal");
+        this.insertLegacy(legacyOwner.toString(), "world", 5, 64, 5, "coal", null, 1, false);
+        // the generator has been replaced while the migration was running
+        assertTrue(this.dbm.write(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + DatabaseManager.GENERATOR_TABLE +
+                    " (owner, world, x, y, z, chunk_x, chunk_z, generator_type, timer, is_corrupted) VALUES (?,?,?,?,?,?,?,?,?,?)")) {
+                statement.setBytes(1, DatabaseManager.toBytes(currentOwner));
+                statement.setString(2, "world");
+                statement.setInt(3, 5);
+                statement.setInt(4, 64);
+                statement.setInt(5, 5);
+                statement.setInt(6, 0);
+                statement.setInt(7, 0);
+                statement.setInt(8, coal);
+                statement.setDouble(9, 3);
+                statement.setInt(10, 0);
+                statement.executeUpdate();
+            }
+        }));
+
+        this.dbm.migrateGenerators(this.registry);
+
+        assertEquals(Set.of(new Row(currentOwner, "world", 5, 64, 5, 0, 0, coal, 3, false)), this.readRows());
+    }
+
+    private void insertLegacy(String owner, String world, int x, int y, int z, String id, Integer type,
+                              double timer, boolean corrupted) {
+        String location = LocationUtils.serialize(new Location(TestServer.world(world), x, y, z));
+        assertTrue(this.dbm.write(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + DatabaseManager.LEGACY_GENERATOR_TABLE +
+                    " (owner, location, generator_id, generator_type, timer, is_corrupted) VALUES (?,?,?,?,?,?)")) {
+                statement.setString(1, owner);
+                statement.setString(2, location);
+                statement.setString(3, id);
+                statement.setObject(4, type);
+                statement.setDouble(5, timer);
+                statement.setInt(6, corrupted ? 1 : 0);
+                statement.executeUpdate();
+            }
+        }));
+    }
+
+    private Set<Row> readRows() {
+        Set<Row> rows = new HashSet<>();
+        this.dbm.executeQuery("SELECT owner, world, x, y, z, chunk_x, chunk_z, generator_type, timer, is_corrupted FROM " +
+                DatabaseManager.GENERATOR_TABLE, result -> {
+            while (result.next()) {
+                rows.add(new Row(DatabaseManager.fromBytes(result.getBytes(1)), result.getString(2), result.getInt(3),
+                        result.getInt(4), result.getInt(5), result.getInt(6), result.getInt(7), result.getInt(8),
+                        result.getDouble(9), result.getInt(10) == 1));
+            }
+        });
+        return rows;
+    }
+
+    private boolean legacyTableExists() {
+        boolean[] exists = new boolean[1];
+        this.dbm.executeQuery("SELECT name FROM sqlite_master WHERE type='table' AND name='" +
+                DatabaseManager.LEGACY_GENERATOR_TABLE + "'", result -> exists[0] = result.next());
+        return exists[0];
+    }
+
+    private record Row(UUID owner, String world, int x, int y, int z, int chunkX, int chunkZ, int type, double timer,
+                       boolean corrupted) {}
+
+}
@@ -0,0 +1,88 @@
+package com.muhammaddaffa.nextgens.managers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefundDatabaseTest {
+
+    @TempDir
+    File directory;
+
+    private DatabaseManager dbm;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.dbm = new DatabaseManager();
+        this.dbm.connectSQLite(new File(this.directory, "generators.db").getPath(), true);
+        this.dbm.createRefundTable();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.dbm.close();
+    }
+
+    @Test
+    void takeReturnsWhatHasBeenAdded() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        assertTrue(this.dbm.addRefunds(Map.of(
+                first, Map.of("coal", 3, "iron", 1),
+                second, Map.of("gold", 2)
+        )));
+
+        assertEquals(Map.of("coal", 3, "iron", 1), this.dbm.takeRefunds(first));
+        assertEquals(Map.of("gold", 2), this.dbm.takeRefunds(second));
+    }
+
+    @Test
+    void amountsAddUp() {
+        UUID uuid = UUID.randomUUID();
+        assertTrue(this.dbm.addRefunds(Map.of(uuid, Map.of("coal", 3))));
+        assertTrue(this.dbm.addRefunds(Map.of(uuid, Map.of("coal", 2, "iron", 1))));
+
+        assertEquals(Map.of("coal", 5, "iron", 1), this.dbm.takeRefunds(uuid));
+    }
+
+    @Test
+    void refundsAreOnlyTakenOnce() {
+        UUID uuid = UUID.randomUUID();
+        assertTrue(this.dbm.addRefunds(Map.of(uuid, Map.of("coal", 1))));
+
+        assertEquals(Map.of("coal", 1), this.dbm.takeRefunds(uuid));
+        assertEquals(Map.of(), this.dbm.takeRefunds(uuid));
+        assertEquals(Map.of(), this.dbm.takeRefunds(UUID.randomUUID()));
+    }
+
+    @Test
+    void migrationIsOnlyImportedOnce() {
+        UUID uuid = UUID.randomUUID();
+        Map<UUID, Map<String, Integer>> refunds = Map.of(uuid, Map.of("coal", 4));
+        assertTrue(this.dbm.migrateRefunds("test-migration", refunds));
+        // e.g. the server stopped before the source could be cleared
+        assertTrue(this.dbm.migrateRefunds("test-migration", refunds));
+
+        assertEquals(Map.of("coal", 4), this.dbm.takeRefunds(uuid));
+    }
+
+    @Test
+    void sameRefundsOfAnotherSourceAreImported() {
+        UUID uuid = UUID.randomUUID();
+        Map<UUID, Map<String, Integer>> refunds = Map.of(uuid, Map.of("coal", 4));
+        // e.g. two servers with the same data.yml refunds
+        assertTrue(this.dbm.migrateRefunds("first-server", refunds));
+        assertTrue(this.dbm.migrateRefunds("second-server", refunds));
+
+        assertEquals(Map.of("coal", 8), this.dbm.takeRefunds(uuid));
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.muhammaddaffa.nextgens.managers;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write throughput of the single SQLite writer with group commit against the pool of 10
+ * connections, with as many concurrent writers as an auto-save, a few user saves and refunds.
+ * <p>
+ * Run it with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(8)
+public class SQLiteWriterBenchmark {
+
+    @Param({"false", "true"})
+    public boolean singleWriter;
+
+    private final AtomicLong ids = new AtomicLong();
+    private File directory;
+    private DatabaseManager dbm;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("nextgens-benchmark").toFile();
+        this.dbm = new DatabaseManager();
+        this.dbm.connectSQLite(new File(this.directory, "generators.db").getPath(), this.singleWriter);
+        this.dbm.executeUpdate("CREATE TABLE IF NOT EXISTS benchmark (id INTEGER PRIMARY KEY, value DOUBLE);");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.dbm.close();
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    /**
+     * One single-row transaction, a failed write (SQLITE_BUSY on the pool) still counts as an operation.
+     */
+    @Benchmark
+    public boolean write() {
+        long id = this.ids.incrementAndGet();
+        return this.dbm.write(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO benchmark (id, value) VALUES (?, ?);")) {
+                statement.setLong(1, id);
+                statement.setDouble(2, id);
+                statement.executeUpdate();
+            }
+        }, ex -> {});
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SQLiteWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
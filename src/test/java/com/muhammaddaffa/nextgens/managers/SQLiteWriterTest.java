@@ -0,0 +1,129 @@
+package com.muhammaddaffa.nextgens.managers;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SQLiteWriterTest {
+
+    @TempDir
+    File directory;
+
+    private String url;
+    private SQLiteWriter writer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        this.url = "jdbc:sqlite:" + new File(this.directory, "test.db").getPath();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(this.url);
+        config.setMaximumPoolSize(1);
+        this.writer = new SQLiteWriter(new HikariDataSource(config));
+        assertNull(this.writer.write(connection -> this.execute(connection, "CREATE TABLE test (id INTEGER PRIMARY KEY);")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.writer.close();
+    }
+
+    @Test
+    void commitsTheWrite() throws SQLException {
+        assertNull(this.writer.write(connection -> this.insert(connection, 1)));
+        assertEquals(1, this.count());
+    }
+
+    @Test
+    void failedWriteInAGroupDoesNotLoseTheOthers() throws Exception {
+        // hold the writer thread, so the next writes are queued and committed as one group
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<SQLException> blocker = CompletableFuture.supplyAsync(() -> this.writer.write(connection -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.insert(connection, 0);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        List<CompletableFuture<SQLException>> writes = new ArrayList<>();
+        for (int id = 1; id <= 5; id++) {
+            int value = id;
+            writes.add(CompletableFuture.supplyAsync(() -> this.writer.write(connection -> this.insert(connection, value))));
+        }
+        // it fails and rolls back the whole group
+        CompletableFuture<SQLException> failing = CompletableFuture.supplyAsync(() -> this.writer.write(connection -> {
+            this.insert(connection, 6);
+            throw new SQLException("Failed on purpose");
+        }));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertNull(blocker.get(10, TimeUnit.SECONDS));
+        for (CompletableFuture<SQLException> write : writes) {
+            write.get(10, TimeUnit.SECONDS);
+        }
+        assertNotNull(failing.get(10, TimeUnit.SECONDS));
+        // every write except the failing one has been committed
+        assertEquals(6, this.count());
+    }
+
+    @Test
+    void nestedWriteJoinsTheTransaction() throws SQLException {
+        SQLException failure = this.writer.write(connection -> {
+            this.insert(connection, 1);
+            // started by another write on the writer thread, it must not wait on itself
+            SQLException nested = this.writer.write(nestedConnection -> {
+                assertSame(connection, nestedConnection);
+                this.insert(nestedConnection, 2);
+            });
+            assertNull(nested);
+        });
+        assertNull(failure);
+        assertEquals(2, this.count());
+    }
+
+    @Test
+    void writeAfterCloseFailsInsteadOfBlocking() {
+        this.writer.close();
+        assertNotNull(this.writer.write(connection -> this.insert(connection, 1)));
+    }
+
+    private void insert(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO test (id) VALUES (?);")) {
+            statement.setInt(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private void execute(Connection connection, String query) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(query);
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(this.url);
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM test;")) {
+            return result.getInt(1);
+        }
+    }
+
+}
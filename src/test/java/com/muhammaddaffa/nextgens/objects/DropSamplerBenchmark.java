@@ -0,0 +1,65 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One drop roll with the alias table against the roll loop it replaced, which rolled every drop
+ * in order until one hit. The chances add up to 90, so 10% of the rolls are a "no drop".
+ * <p>
+ * Run it with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DropSamplerBenchmark {
+
+    @Param({"2", "8", "32"})
+    public int drops;
+
+    private List<Drop> list;
+    private DropSampler sampler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.list = new ArrayList<>();
+        for (int i = 0; i < this.drops; i++) {
+            this.list.add(new Drop("drop_" + i, 90.0 / this.drops, null, null, List.of()));
+        }
+        this.sampler = new DropSampler();
+        this.sampler.compile(this.list);
+    }
+
+    @Benchmark
+    public Drop aliasTable() {
+        return this.sampler.sample(this.list);
+    }
+
+    /**
+     * The old Generator#getRandomDrop, with the roll of the removed Drop#shouldUse.
+     */
+    @Benchmark
+    public Drop rollLoop() {
+        for (Drop drop : this.list) {
+            if (ThreadLocalRandom.current().nextDouble(101) <= drop.chance()) {
+                return drop;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DropSamplerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
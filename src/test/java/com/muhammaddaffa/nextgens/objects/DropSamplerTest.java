@@ -0,0 +1,125 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DropSamplerTest {
+
+    private static final int SAMPLES = 1_000_000;
+    // chi-square critical value for 3 degrees of freedom at p = 0.000001, so the test practically never flakes
+    private static final double CRITICAL_3 = 30.66;
+
+    @Test
+    void samplesEveryDropWithItsChance() {
+        Drop common = drop("common", 50);
+        Drop rare = drop("rare", 25);
+        Drop epic = drop("epic", 10);
+        Drop never = drop("never", 0);
+        List<Drop> drops = List.of(common, never, rare, epic);
+
+        Map<Drop, Integer> counts = this.sample(drops);
+
+        // the chances add up to 85, the "no drop" slot takes the other 15
+        assertFalse(counts.containsKey(never));
+        double chiSquare = chiSquare(counts.getOrDefault(common, 0), 0.50)
+                + chiSquare(counts.getOrDefault(rare, 0), 0.25)
+                + chiSquare(counts.getOrDefault(epic, 0), 0.10)
+                + chiSquare(counts.getOrDefault(null, 0), 0.15);
+        assertTrue(chiSquare < CRITICAL_3, "chi-square " + chiSquare);
+    }
+
+    @Test
+    void normalizesChancesAboveOneHundred() {
+        Drop first = drop("first", 120);
+        Drop second = drop("second", 60);
+        Drop third = drop("third", 20);
+        List<Drop> drops = List.of(first, second, third);
+
+        Map<Drop, Integer> counts = this.sample(drops);
+
+        // there's no room for the "no drop" slot
+        assertFalse(counts.containsKey(null));
+        double chiSquare = chiSquare(counts.getOrDefault(first, 0), 0.6)
+                + chiSquare(counts.getOrDefault(second, 0), 0.3)
+                + chiSquare(counts.getOrDefault(third, 0), 0.1);
+        // 2 degrees of freedom, still well below the 3 degrees critical value
+        assertTrue(chiSquare < CRITICAL_3, "chi-square " + chiSquare);
+    }
+
+    @Test
+    void neverDropsWithoutChances() {
+        DropSampler sampler = new DropSampler();
+        List<Drop> drops = List.of(drop("zero", 0), drop("negative", -5));
+        for (int i = 0; i < 10_000; i++) {
+            assertNull(sampler.sample(drops));
+        }
+        assertTrue(sampler.sample(drops, 10_000).isEmpty());
+        assertNull(new DropSampler().sample(new ArrayList<>()));
+    }
+
+    @Test
+    void batchSampleGivesEveryDropItsShare() {
+        Drop common = drop("common", 50);
+        Drop rare = drop("rare", 12.5);
+        Drop never = drop("never", 0);
+        DropSampler sampler = new DropSampler();
+        List<Drop> drops = List.of(common, rare, never);
+
+        for (long samples : new long[]{1, 7, 1000, 123_457}) {
+            List<DropSampler.Roll> result = sampler.sample(drops, samples);
+            // every drop is rounded either down or up from its expected amount
+            assertEquals(0.5 * samples, amountOf(result, common), 1);
+            assertEquals(0.125 * samples, amountOf(result, rare), 1);
+            assertTrue(result.stream().noneMatch(roll -> roll.drop() == never));
+        }
+        assertTrue(sampler.sample(drops, 0).isEmpty());
+    }
+
+    @Test
+    void recompilesAfterInvalidate() {
+        DropSampler sampler = new DropSampler();
+        List<Drop> drops = new ArrayList<>(List.of(drop("none", 0)));
+        assertNull(sampler.sample(drops));
+        assertTrue(sampler.isCompiled());
+
+        Drop always = drop("always", 100);
+        drops.add(always);
+        sampler.invalidate();
+        assertFalse(sampler.isCompiled());
+        for (int i = 0; i < 1000; i++) {
+            assertSame(always, sampler.sample(drops));
+        }
+    }
+
+    private Map<Drop, Integer> sample(List<Drop> drops) {
+        DropSampler sampler = new DropSampler();
+        Map<Drop, Integer> counts = new IdentityHashMap<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            counts.merge(sampler.sample(drops), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static long amountOf(List<DropSampler.Roll> rolls, Drop drop) {
+        return rolls.stream()
+                .filter(roll -> roll.drop() == drop)
+                .mapToLong(DropSampler.Roll::amount)
+                .sum();
+    }
+
+    private static double chiSquare(int observed, double probability) {
+        double expected = SAMPLES * probability;
+        return (observed - expected) * (observed - expected) / expected;
+    }
+
+    private static Drop drop(String id, double chance) {
+        return new Drop(id, chance, null, null, List.of());
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
+import com.muhammaddaffa.nextgens.managers.DatabaseManager;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Retained heap per generator before and after the generators are moved into a {@link GeneratorStore}.
+ * Before, every generator holds its own owner and location with a reference to the world, afterward it only
+ * keeps the index of its row, the owner and the block are kept in the arrays of the store.
+ * <p>
+ * Retained size can't be measured with JMH, run it with the main method from the test classpath
+ * with a fixed heap, e.g. {@code -Xms2g -Xmx2g}.
+ */
+public class GeneratorStoreHeapBenchmark {
+
+    private static final int GENERATORS = 500_000;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        World world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class},
+                (proxy, method, arguments) -> switch (method.getName()) {
+                    case "getName" -> "world";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == arguments[0];
+                    default -> null;
+                });
+        // the type is interned into a throwaway database
+        DatabaseManager dbm = new DatabaseManager();
+        dbm.connectSQLite(Files.createTempDirectory("nextgens").resolve("generators.db").toString(), true);
+        dbm.createGeneratorTable();
+        GeneratorRegistry registry = new GeneratorRegistry(dbm);
+        Generator generator = new Generator("coal", "Coal", 10, null, List.of(), null, 0, false, 0, 0, null,
+                List.of(), List.of());
+
+        long baseline = usedHeap();
+        List<ActiveGenerator> generators = new ArrayList<>(GENERATORS);
+        for (int i = 0; i < GENERATORS; i++) {
+            Location location = new Location(world, i % 1000, 64, i / 1000);
+            generators.add(new ActiveGenerator(UUID.randomUUID(), location, generator));
+        }
+        long standalone = usedHeap() - baseline;
+
+        GeneratorStore store = new GeneratorStore(registry);
+        for (ActiveGenerator active : generators) {
+            store.bind(active, false);
+        }
+        long stored = usedHeap() - baseline;
+
+        System.out.printf("standalone: %.1f bytes per generator%n", (double) standalone / GENERATORS);
+        System.out.printf("stored:     %.1f bytes per generator (with the store arrays)%n", (double) stored / GENERATORS);
+        System.out.printf("reduction:  %.1f%%%n", 100.0 * (standalone - stored) / standalone);
+        // keep everything reachable until it's measured
+        System.out.println(store.size() + " generators");
+        dbm.close();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
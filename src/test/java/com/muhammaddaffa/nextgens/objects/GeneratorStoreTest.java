@@ -0,0 +1,162 @@
+package com.muhammaddaffa.nextgens.objects;
+
+import com.muhammaddaffa.nextgens.TestServer;
+import com.muhammaddaffa.nextgens.generators.GeneratorRegistry;
+import com.muhammaddaffa.nextgens.managers.DatabaseManager;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratorStoreTest {
+
+    private static final Generator COAL = generator("coal");
+    private static final Generator IRON = generator("iron");
+
+    @TempDir
+    File directory;
+
+    private DatabaseManager dbm;
+    private World world;
+    private GeneratorStore store;
+
+    @BeforeAll
+    static void setUpServer() {
+        TestServer.install();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.world = TestServer.load("world");
+        // the types are interned into the database
+        this.dbm = new DatabaseManager();
+        this.dbm.connectSQLite(new File(this.directory, "generators.db").getPath(), true);
+        this.dbm.createGeneratorTable();
+        this.store = new GeneratorStore(new GeneratorRegistry(this.dbm));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.dbm.close();
+    }
+
+    @Test
+    void unbindAllMovesTheStateBack() {
+        UUID owner = UUID.randomUUID();
+        ActiveGenerator first = this.bind(owner, 1, COAL);
+        ActiveGenerator second = this.bind(owner, 2, IRON);
+        ActiveGenerator kept = this.bind(owner, 3, COAL);
+        first.setTimer(5);
+        first.setIdleTime(90);
+        second.setCorrupted(true);
+        kept.setCorrupted(true);
+
+        this.store.unbindAll(List.of(first, second));
+
+        assertEquals(1, this.store.size());
+        assertEquals(5, first.getTimer());
+        assertEquals(90, first.getIdleTime());
+        assertFalse(first.isCorrupted());
+        assertSame(COAL, first.getGenerator());
+        assertSame(this.world, first.getLocation().getWorld());
+        assertEquals(1, first.getLocation().getBlockX());
+        assertTrue(second.isCorrupted());
+        assertSame(IRON, second.getGenerator());
+        // the unbound generators keep working on their own
+        second.setTimer(7);
+        assertEquals(7, second.getTimer());
+        assertEquals(1, this.store.size());
+    }
+
+    @Test
+    void storedGeneratorsAreViewsOfTheirRow() {
+        UUID owner = UUID.randomUUID();
+        ActiveGenerator active = this.bind(owner, 4, COAL);
+
+        // the owner and the block are only kept in the row
+        assertNull(active.owner);
+        assertNull(active.key);
+        assertNull(active.location);
+        assertEquals(owner, active.getOwner());
+        assertEquals(BlockKey.of(new Location(this.world, 4, 64, 0)), active.getKey());
+        assertEquals(4, active.getLocation().getBlockX());
+
+        this.store.unbindAll(List.of(active));
+        assertEquals(owner, active.owner);
+        assertEquals(owner, active.getOwner());
+        assertEquals(4, active.getLocation().getBlockX());
+    }
+
+    @Test
+    void unboundGeneratorsAreNoLongerSavedOrCounted() {
+        UUID owner = UUID.randomUUID();
+        ActiveGenerator removed = this.bind(owner, 1, COAL);
+        ActiveGenerator kept = this.bind(owner, 2, COAL);
+        removed.setCorrupted(true);
+        kept.setCorrupted(true);
+
+        this.store.unbindAll(List.of(removed));
+
+        assertEquals(List.of(kept), this.store.drainDirty(100));
+        assertFalse(this.store.hasDirty());
+        assertEquals(Map.of(owner, 1), this.store.countCorrupted());
+        assertEquals(1, this.store.copyRows().size());
+    }
+
+    @Test
+    void freedRowsAreReused() {
+        UUID owner = UUID.randomUUID();
+        List<ActiveGenerator> generators = new ArrayList<>();
+        for (int x = 0; x < 100; x++) {
+            generators.add(this.bind(owner, x, COAL));
+        }
+        this.store.unbindAll(generators);
+        assertEquals(0, this.store.size());
+        assertEquals(0, this.store.copyRows().size());
+
+        // placed again, e.g. after they have been picked up
+        for (ActiveGenerator active : generators) {
+            this.store.bind(active, false);
+        }
+        assertEquals(100, this.store.size());
+        assertEquals(100, this.store.copyRows().size());
+        assertSame(COAL, generators.get(50).getGenerator());
+    }
+
+    @Test
+    void unbindingUnknownGeneratorsDoesNothing() {
+        ActiveGenerator stored = this.bind(UUID.randomUUID(), 1, COAL);
+        ActiveGenerator unknown = new ActiveGenerator(UUID.randomUUID(), new Location(this.world, 2, 64, 2), IRON, 3, false);
+
+        this.store.unbindAll(List.of(unknown, stored));
+        // unbinding twice is fine as well
+        this.store.unbindAll(List.of(stored));
+
+        assertEquals(0, this.store.size());
+        assertEquals(3, unknown.getTimer());
+        assertSame(IRON, unknown.getGenerator());
+    }
+
+    private ActiveGenerator bind(UUID owner, int x, Generator generator) {
+        ActiveGenerator active = new ActiveGenerator(owner, new Location(this.world, x, 64, 0), generator);
+        this.store.bind(active, true);
+        return active;
+    }
+
+    private static Generator generator(String id) {
+        return new Generator(id, id, 10, null, List.of(), null, 0, false, 0, 0, null, List.of(), List.of());
+    }
+
+}